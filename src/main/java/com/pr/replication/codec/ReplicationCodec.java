@@ -0,0 +1,163 @@
+package com.pr.replication.codec;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of replication messages.
+ * <p>
+ * An entry is {@code [int keyLen][key][int valueLen][value][long version][long seq]} with UTF-8 strings
+ * and a length of {@code -1} for {@code null}; a batch is {@code [int count]} followed by entries, then
+ * {@code [int count]} superseded seqs and a {@code [boolean repair]} flag. A snapshot is {@code [long seq]} followed by {@code [true][entry]}
+ * records and a closing {@code [false]}.
+ * <p>
+ * Lengths and counts come from the peer, so readers never allocate from them up front: strings are
+ * capped at {@link #MAX_STRING_BYTES} and read in chunks, and lists grow as elements actually arrive.
+ */
+public final class ReplicationCodec {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-replication";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+    public static final int MAX_STRING_BYTES = 64 * 1024 * 1024;
+
+    private static final int PREALLOCATE_LIMIT = 1024;
+    private static final int READ_CHUNK_BYTES = 64 * 1024;
+
+    private ReplicationCodec() {
+    }
+
+    public static void writeRequest(DataOutput out, ReplicationRequest request) throws IOException {
+        writeString(out, request.key());
+        writeString(out, request.value());
+        out.writeLong(request.version());
+        out.writeLong(request.seq());
+    }
+
+    public static ReplicationRequest readRequest(DataInput in) throws IOException {
+        String key = readString(in);
+        String value = readString(in);
+        long version = in.readLong();
+        long seq = in.readLong();
+        return new ReplicationRequest(key, value, version, seq);
+    }
+
+    public static ReplicationRequest readRequest(ByteBuffer in) {
+        String key = readString(in);
+        String value = readString(in);
+        long version = in.getLong();
+        long seq = in.getLong();
+        return new ReplicationRequest(key, value, version, seq);
+    }
+
+    public static void writeBatch(DataOutput out, ReplicationBatch batch) throws IOException {
+        out.writeInt(batch.entries().size());
+        for (ReplicationRequest request : batch.entries()) {
+            writeRequest(out, request);
+        }
+        out.writeInt(batch.supersededSeqs().size());
+        for (long seq : batch.supersededSeqs()) {
+            out.writeLong(seq);
+        }
+        out.writeBoolean(batch.repair());
+    }
+
+    public static ReplicationBatch readBatch(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("Negative batch size " + count);
+        List<ReplicationRequest> entries = new ArrayList<>(Math.min(count, PREALLOCATE_LIMIT));
+        for (int i = 0; i < count; i++) {
+            entries.add(readRequest(in));
+        }
+        int superseded = in.readInt();
+        if (superseded < 0)
+            throw new IOException("Negative superseded count " + superseded);
+        List<Long> supersededSeqs = new ArrayList<>(Math.min(superseded, PREALLOCATE_LIMIT));
+        for (int i = 0; i < superseded; i++) {
+            supersededSeqs.add(in.readLong());
+        }
+        return new ReplicationBatch(entries, supersededSeqs, in.readBoolean());
+    }
+
+    public static void writeSnapshotHeader(DataOutput out, long seq) throws IOException {
+        out.writeLong(seq);
+    }
+
+    public static long readSnapshotHeader(DataInput in) throws IOException {
+        return in.readLong();
+    }
+
+    public static void writeSnapshotEntry(DataOutput out, ReplicationRequest request) throws IOException {
+        out.writeBoolean(true);
+        writeRequest(out, request);
+    }
+
+    public static void writeSnapshotEnd(DataOutput out) throws IOException {
+        out.writeBoolean(false);
+    }
+
+    public static ReplicationRequest readSnapshotEntry(DataInput in) throws IOException {
+        return in.readBoolean() ? readRequest(in) : null;
+    }
+
+    public static ReplicationRequest readSnapshotEntry(ByteBuffer in) {
+        return in.get() != 0 ? readRequest(in) : null;
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1)
+            return null;
+        if (length < 0 || length > MAX_STRING_BYTES)
+            throw new IllegalArgumentException("Invalid string length " + length);
+        if (length > in.remaining())
+            throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1)
+            return null;
+        if (length < 0 || length > MAX_STRING_BYTES)
+            throw new IOException("Invalid string length " + length);
+        if (length <= READ_CHUNK_BYTES) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        // Grow with the bytes that actually arrive, so a lying length ends in EOF rather than a huge buffer.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(READ_CHUNK_BYTES);
+        byte[] chunk = new byte[READ_CHUNK_BYTES];
+        for (int remaining = length; remaining > 0; ) {
+            int n = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, n);
+            bytes.write(chunk, 0, n);
+            remaining -= n;
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,49 @@
+package com.pr.replication.codec;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class ReplicationMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public ReplicationMessageConverter() {
+        super(ReplicationCodec.MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ReplicationRequest.class == clazz || ReplicationBatch.class == clazz;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        DataInputStream in = new DataInputStream(inputMessage.getBody());
+        try {
+            if (clazz == ReplicationBatch.class)
+                return ReplicationCodec.readBatch(in);
+            return ReplicationCodec.readRequest(in);
+        } catch (IOException | RuntimeException e) {
+            throw new HttpMessageNotReadableException("Malformed replication payload: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(buffer);
+        if (body instanceof ReplicationBatch batch)
+            ReplicationCodec.writeBatch(out, batch);
+        else
+            ReplicationCodec.writeRequest(out, (ReplicationRequest) body);
+        outputMessage.getHeaders().setContentLength(buffer.size());
+        buffer.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,14 @@
+package com.pr.replication.config;
+
+import com.pr.replication.codec.ReplicationMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CodecConfig {
+
+    @Bean
+    public ReplicationMessageConverter replicationMessageConverter() {
+        return new ReplicationMessageConverter();
+    }
+}
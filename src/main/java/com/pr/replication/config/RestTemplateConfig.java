@@ -1,14 +1,95 @@
 package com.pr.replication.config;
 
+import com.pr.replication.codec.ReplicationMessageConverter;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+
 @Configuration
 public class RestTemplateConfig {
 
-    @Bean
-    public RestTemplate restTemplate(){
-        return new RestTemplate();
+    @Value("${replication.followers:}")
+    private List<String> followers;
+
+    @Value("${replication.http.max-connections-per-follower:64}")
+    private int maxConnectionsPerFollower;
+
+    @Value("${replication.http.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${replication.http.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${replication.http.pool-timeout-ms:1000}")
+    private long poolTimeoutMs;
+
+    @Value("${replication.http.idle-eviction-ms:30000}")
+    private long idleEvictionMs;
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "replication.http.transport", havingValue = "http1", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager replicationConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(maxConnectionsPerFollower)
+                .setMaxConnTotal(maxConnectionsPerFollower * Math.max(1, followers.size()))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "replication.http.transport", havingValue = "http1", matchIfMissing = true)
+    public CloseableHttpClient replicationHttpClient(PoolingHttpClientConnectionManager replicationConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(replicationConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMs))
+                .build();
+    }
+
+    @Bean(name = "restTemplate")
+    @ConditionalOnProperty(name = "replication.http.transport", havingValue = "http1", matchIfMissing = true)
+    public RestTemplate restTemplate(CloseableHttpClient replicationHttpClient,
+                                     ReplicationMessageConverter replicationMessageConverter) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(replicationHttpClient));
+        restTemplate.getMessageConverters().add(0, replicationMessageConverter);
+        return restTemplate;
+    }
+
+    @Bean(name = "restTemplate")
+    @ConditionalOnProperty(name = "replication.http.transport", havingValue = "h2c")
+    public RestTemplate h2cRestTemplate(ReplicationMessageConverter replicationMessageConverter) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.getMessageConverters().add(0, replicationMessageConverter);
+        return restTemplate;
     }
 }
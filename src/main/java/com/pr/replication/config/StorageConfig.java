@@ -0,0 +1,25 @@
+package com.pr.replication.config;
+
+import com.pr.replication.storage.HeapStorageEngine;
+import com.pr.replication.storage.OffHeapStorageEngine;
+import com.pr.replication.storage.StorageEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "replication.storage.engine", havingValue = "heap", matchIfMissing = true)
+    public StorageEngine heapStorageEngine() {
+        return new HeapStorageEngine();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "replication.storage.engine", havingValue = "off-heap")
+    public StorageEngine offHeapStorageEngine(@Value("${replication.storage.slab-bytes:67108864}") int slabBytes) {
+        return new OffHeapStorageEngine(slabBytes);
+    }
+}
@@ -1,12 +1,20 @@
 package com.pr.replication.controller;
 
+import com.pr.replication.model.ReplicationBatch;
 import com.pr.replication.model.ReplicationRequest;
+import com.pr.replication.service.MerkleTree;
 import com.pr.replication.service.StorageService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequiredArgsConstructor
 @Profile("follower")
@@ -16,7 +24,36 @@ public class FollowerController {
 
     @PostMapping("/replicate")
     @ResponseStatus(HttpStatus.CREATED)
-    public void replicate(@RequestBody ReplicationRequest replication) {
-        storageService.replicate(replication.key(), replication.value(), replication.time());
+    public CompletableFuture<Void> replicate(@RequestBody ReplicationRequest replication) {
+        return storageService.replicate(replication);
+    }
+
+    // Hinted redeliveries and anti-entropy repairs can be older than what live replication has already
+    // applied, so repair batches are always resolved last-writer-wins; live batches follow replication.version.
+    @PostMapping("/replicate-batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<Void> replicateBatch(@RequestBody ReplicationBatch batch) {
+        CompletableFuture<?>[] durable = batch.entries().stream()
+                .map(entry -> batch.repair() ? storageService.replicate(entry, true) : storageService.replicate(entry))
+                .toArray(CompletableFuture[]::new);
+        batch.supersededSeqs().forEach(storageService::markApplied);
+        return CompletableFuture.allOf(durable);
+    }
+
+    @PostMapping("/merkle/nodes")
+    public ResponseEntity<long[]> merkleNodes(@RequestBody List<Integer> nodes) {
+        if (!nodes.stream().allMatch(node -> node != null && MerkleTree.isNode(node)))
+            return ResponseEntity.badRequest().build();
+        long[] tree = storageService.merkleNodes();
+        return ResponseEntity.ok(nodes.stream().mapToLong(node -> tree[node]).toArray());
+    }
+
+    @PostMapping("/merkle/leaves")
+    public ResponseEntity<Map<String, Long>> merkleLeaves(@RequestBody List<Integer> leaves) {
+        if (!leaves.stream().allMatch(node -> node != null && MerkleTree.isNode(node) && MerkleTree.isLeaf(node)))
+            return ResponseEntity.badRequest().build();
+        Map<String, Long> versions = new HashMap<>();
+        storageService.forEachInLeaves(leaves, (key, entry) -> versions.put(key, entry.version()));
+        return ResponseEntity.ok(versions);
     }
 }
@@ -1,31 +1,127 @@
 package com.pr.replication.controller;
 
-import com.pr.replication.service.SenderService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pr.replication.model.Entry;
 import com.pr.replication.service.StorageService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @RestController
 @RequiredArgsConstructor
 public class GeneralController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NEXT_VERSION_HEADER = "X-Next-Version";
+    private static final FieldWriter VERSION_FIELD = (json, key, entry) -> json.writeNumberField(key, entry.version());
+
     private final StorageService storageService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${replication.dump.max-page-size:10000}")
+    private int maxPageSize;
+
+    @FunctionalInterface
+    private interface FieldWriter {
+        void write(JsonGenerator json, String key, Entry entry) throws IOException;
+    }
 
     @GetMapping("/{key}")
     public String getKey(@PathVariable String key) {
         return storageService.get(key);
     }
 
+    @GetMapping("/replication/status")
+    public Map<String, Long> replicationStatus() {
+        return storageService.getReplicationStatus();
+    }
+
     @GetMapping("/dump")
-    public Map<String, String> dump() {
-        return storageService.getAllData();
+    public ResponseEntity<StreamingResponseBody> dump(@RequestParam(required = false) String after,
+                                                      @RequestParam(required = false) Integer limit) {
+        return dump(after, limit, (json, key, entry) -> json.writeStringField(key, entry.value()));
     }
 
     @GetMapping("/dump-versions")
-    public Map<String, Long> dumpVersions() {
-        return storageService.getAllVersions();
+    public ResponseEntity<StreamingResponseBody> dumpVersions(@RequestParam(required = false) String after,
+                                                              @RequestParam(required = false) Integer limit) {
+        return dump(after, limit, VERSION_FIELD);
+    }
+
+    @GetMapping("/dump-since")
+    public ResponseEntity<StreamingResponseBody> dumpSince(@RequestParam long version,
+                                                           @RequestParam(required = false) Integer limit) {
+        if (limit == null)
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> writeObject(out,
+                            action -> storageService.forEachChangedSince(version, Integer.MAX_VALUE, action), VERSION_FIELD));
+        if (limit <= 0)
+            return ResponseEntity.badRequest().build();
+
+        limit = Math.min(limit, maxPageSize);
+        List<Map.Entry<String, Entry>> page = new ArrayList<>(Math.min(limit, 1024));
+        storageService.forEachChangedSince(version, limit, (key, entry) -> page.add(Map.entry(key, entry)));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (page.size() == limit)
+            response.header(NEXT_VERSION_HEADER, String.valueOf(page.getLast().getValue().version()));
+        return response.body(out -> writeObject(out, entriesOf(page), VERSION_FIELD));
+    }
+
+    private ResponseEntity<StreamingResponseBody> dump(String after, Integer limit, FieldWriter writer) {
+        if (limit == null)
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> writeObject(out, storageService::forEachEntry, writer));
+        if (limit <= 0)
+            return ResponseEntity.badRequest().build();
+
+        limit = Math.min(limit, maxPageSize);
+        List<Map.Entry<String, Entry>> page = storageService.page(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (page.size() == limit)
+            response.header(NEXT_CURSOR_HEADER, URLEncoder.encode(page.getLast().getKey(), StandardCharsets.UTF_8));
+        return response.body(out -> writeObject(out, entriesOf(page), writer));
+    }
+
+    private static Consumer<BiConsumer<String, Entry>> entriesOf(List<Map.Entry<String, Entry>> page) {
+        return action -> page.forEach(e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    private void writeObject(OutputStream out, Consumer<BiConsumer<String, Entry>> entries,
+                             FieldWriter writer) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            json.writeStartObject();
+            try {
+                entries.accept((key, entry) -> {
+                    try {
+                        writer.write(json, key, entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            json.writeEndObject();
+        }
     }
 }
@@ -1,14 +1,22 @@
 package com.pr.replication.controller;
 
+import com.pr.replication.codec.ReplicationCodec;
+import com.pr.replication.model.LogPage;
+import com.pr.replication.model.QuorumResult;
 import com.pr.replication.model.WriteRequest;
 import com.pr.replication.service.StorageService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
@@ -17,10 +25,29 @@ public class LeaderController {
 
     private final StorageService storageService;
 
+    @Value("${replication.log.max-page-size:10000}")
+    private int maxPageSize;
+
     @PostMapping("/write")
     @ResponseStatus(HttpStatus.CREATED)
-    public void replicate(@RequestBody WriteRequest writeRequest) {
-        storageService.write(writeRequest.key(), writeRequest.value());
+    public CompletableFuture<QuorumResult> replicate(@RequestBody WriteRequest writeRequest) {
+        return storageService.write(writeRequest.key(), writeRequest.value());
+    }
+
+    @GetMapping("/replication/log")
+    public ResponseEntity<LogPage> readLog(@RequestParam long from, @RequestParam(defaultValue = "1000") int limit) {
+        if (limit <= 0)
+            return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(storageService.readLog(from, Math.min(limit, maxPageSize)));
+    }
+
+    @GetMapping(value = "/replication/snapshot", produces = ReplicationCodec.MEDIA_TYPE_VALUE)
+    public StreamingResponseBody snapshot() {
+        return body -> {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(body, 64 * 1024));
+            storageService.writeSnapshot(out);
+            out.flush();
+        };
     }
 
     @PostMapping("/config")
@@ -0,0 +1,11 @@
+package com.pr.replication.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class LogTruncatedException extends RuntimeException {
+    public LogTruncatedException(String message) {
+        super(message);
+    }
+}
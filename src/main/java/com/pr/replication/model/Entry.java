@@ -0,0 +1,5 @@
+package com.pr.replication.model;
+
+public record Entry(String value, long version) {
+    public static final Entry EMPTY = new Entry("", 0);
+}
@@ -0,0 +1,6 @@
+package com.pr.replication.model;
+
+import java.util.List;
+
+public record LogPage(List<ReplicationRequest> entries, long nextSeq, long lastSeq) {
+}
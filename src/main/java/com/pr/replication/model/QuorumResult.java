@@ -0,0 +1,4 @@
+package com.pr.replication.model;
+
+public record QuorumResult(int acks, int nacks, boolean reached) {
+}
@@ -0,0 +1,20 @@
+package com.pr.replication.model;
+
+import java.util.List;
+
+/**
+ * @param supersededSeqs seqs of updates that were coalesced into a newer entry of this batch and are
+ *                       therefore covered by it
+ * @param repair         the batch carries redeliveries or repairs rather than live writes, so the follower
+ *                       resolves it last-writer-wins whatever {@code replication.version} says
+ */
+public record ReplicationBatch(List<ReplicationRequest> entries, List<Long> supersededSeqs, boolean repair) {
+
+    public ReplicationBatch(List<ReplicationRequest> entries) {
+        this(entries, List.of(), false);
+    }
+
+    public ReplicationBatch(List<ReplicationRequest> entries, List<Long> supersededSeqs) {
+        this(entries, supersededSeqs, false);
+    }
+}
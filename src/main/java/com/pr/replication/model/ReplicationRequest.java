@@ -1,6 +1,4 @@
 package com.pr.replication.model;
 
-import java.time.Instant;
-
-public record ReplicationRequest(String key, String value, Instant time) {
+public record ReplicationRequest(String key, String value, long version, long seq) {
 }
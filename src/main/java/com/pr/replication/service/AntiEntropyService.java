@@ -0,0 +1,116 @@
+package com.pr.replication.service;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically compares the leader's Merkle tree with each follower's, descending only into
+ * subtrees whose hashes differ, and re-sends the leader's entries for the differing leaf ranges.
+ */
+@Log4j2
+@Service
+@Profile("leader")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "replication.anti-entropy.enabled", havingValue = "true")
+public class AntiEntropyService {
+    private static final ParameterizedTypeReference<Map<String, Long>> VERSIONS = new ParameterizedTypeReference<>() {
+    };
+
+    private final StorageService storageService;
+    private final SenderService senderService;
+    private final RestTemplate restTemplate;
+
+    @Value("${replication.followers:}")
+    private List<String> followers;
+
+    @Value("${replication.anti-entropy.batch-size:500}")
+    private int batchSize;
+
+    @Value("${replication.anti-entropy.grace-ms:5000}")
+    private long graceMs;
+
+    @Scheduled(initialDelayString = "${replication.anti-entropy.interval-ms:30000}",
+            fixedDelayString = "${replication.anti-entropy.interval-ms:30000}")
+    public void repairAll() {
+        for (String follower : followers) {
+            try {
+                repair(follower);
+            } catch (RestClientException e) {
+                log.warn("Anti-entropy with {} failed: {}", follower, e.getMessage());
+            }
+        }
+    }
+
+    public void repair(String follower) {
+        long[] local = storageService.merkleNodes();
+        List<Integer> leaves = differingLeaves(follower, local);
+        if (leaves.isEmpty()) return;
+
+        Map<String, Long> remote = restTemplate.exchange(follower + "/merkle/leaves", HttpMethod.POST,
+                new HttpEntity<>(leaves), VERSIONS).getBody();
+        Map<String, Long> theirs = remote == null ? Map.of() : remote;
+
+        // Entries younger than the grace period are probably still in flight to the follower.
+        long cutoff = System.currentTimeMillis() - graceMs;
+        List<ReplicationRequest> repairs = new ArrayList<>();
+        storageService.forEachInLeaves(leaves, (key, entry) -> {
+            Long version = theirs.get(key);
+            if ((version == null || version != entry.version())
+                    && HybridLogicalClock.physicalMillis(entry.version()) < cutoff)
+                repairs.add(new ReplicationRequest(key, entry.value(), entry.version(), 0));
+        });
+
+        int shipped = 0;
+        for (int from = 0; from < repairs.size(); from += batchSize) {
+            ReplicationBatch batch = new ReplicationBatch(
+                    repairs.subList(from, Math.min(from + batchSize, repairs.size())), List.of(), true);
+            if (!senderService.sendBatchAsync(follower, batch).join()) {
+                log.warn("Anti-entropy repair batch to {} failed", follower);
+                break;
+            }
+            shipped += batch.entries().size();
+        }
+        log.info("Anti-entropy with {}: {} differing ranges, repaired {} of {} keys",
+                follower, leaves.size(), shipped, repairs.size());
+    }
+
+    private List<Integer> differingLeaves(String follower, long[] local) {
+        List<Integer> leaves = new ArrayList<>();
+        List<Integer> level = List.of(1);
+        while (!level.isEmpty()) {
+            long[] remote = restTemplate.postForObject(follower + "/merkle/nodes", level, long[].class);
+            if (remote == null || remote.length != level.size())
+                throw new RestClientException("Malformed Merkle response from " + follower);
+
+            List<Integer> next = new ArrayList<>();
+            for (int i = 0; i < remote.length; i++) {
+                int node = level.get(i);
+                if (remote[i] == local[node]) continue;
+                if (MerkleTree.isLeaf(node)) {
+                    leaves.add(node);
+                } else {
+                    next.add(2 * node);
+                    next.add(2 * node + 1);
+                }
+            }
+            level = next;
+        }
+        return leaves;
+    }
+}
@@ -0,0 +1,163 @@
+package com.pr.replication.service;
+
+import com.pr.replication.codec.ReplicationCodec;
+import com.pr.replication.model.LogPage;
+import com.pr.replication.model.ReplicationRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+@Log4j2
+@Profile("follower")
+@RequiredArgsConstructor
+public class CatchUpService {
+
+    private final StorageService storageService;
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean catchingUp = new AtomicBoolean();
+
+    @Value("${replication.leader:}")
+    private String leader;
+
+    @Value("${replication.catch-up.page-size:1000}")
+    private int pageSize;
+
+    @Value("${replication.catch-up.retry-ms:2000}")
+    private long retryMs;
+
+    @Value("${replication.catch-up.max-attempts:30}")
+    private int maxAttempts;
+
+    @Value("${replication.catch-up.gap-timeout-ms:10000}")
+    private long gapTimeoutMs;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("replication.sequence.missing", storageService, StorageService::getMissingSeqs)
+                .register(meterRegistry);
+        Gauge.builder("replication.sequence.skipped", storageService, StorageService::getSkippedSeqs)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (leader.isBlank()) return;
+        Thread.ofPlatform()
+                .name("ReplicationCatchUp")
+                .daemon(true)
+                .start(this::catchUpWithRetries);
+    }
+
+    // A seq that never arrived (a NACK, a lost stream frame) pins the applied seq; replaying the
+    // leader's log from there fills the hole.
+    @Scheduled(fixedDelayString = "${replication.catch-up.gap-check-ms:5000}")
+    void repairGaps() {
+        if (leader.isBlank() || storageService.getSequenceStalledNanos() < TimeUnit.MILLISECONDS.toNanos(gapTimeoutMs))
+            return;
+        log.info("Applied seq stuck at {} with {} seqs missing, catching up from {}",
+                storageService.getAppliedSeq(), storageService.getMissingSeqs(), leader);
+        try {
+            catchUp();
+        } catch (RestClientException e) {
+            log.warn("Gap repair from {} failed: {}", leader, e.getMessage());
+        }
+    }
+
+    private void catchUpWithRetries() {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                catchUp();
+                return;
+            } catch (RestClientException e) {
+                log.warn("Catch-up from {} failed (attempt {}/{}): {}", leader, attempt, maxAttempts, e.getMessage());
+            }
+            try {
+                Thread.sleep(retryMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.error("Giving up catch-up from {} after {} attempts", leader, maxAttempts);
+    }
+
+    public void catchUp() {
+        if (!catchingUp.compareAndSet(false, true))
+            return;
+        try {
+            replayLog();
+        } finally {
+            catchingUp.set(false);
+        }
+    }
+
+    private void replayLog() {
+        long started = System.currentTimeMillis();
+        long from = storageService.getAppliedSeq() + 1;
+        long applied = 0;
+
+        while (true) {
+            LogPage page;
+            try {
+                page = restTemplate.getForObject(leader + "/replication/log?from={from}&limit={limit}",
+                        LogPage.class, from, pageSize);
+            } catch (HttpClientErrorException.Gone e) {
+                log.info("Leader log no longer covers seq {}, transferring snapshot", from);
+                from = loadSnapshot() + 1;
+                continue;
+            }
+            if (page == null) break;
+
+            List<ReplicationRequest> entries = page.entries();
+            for (ReplicationRequest entry : entries) {
+                storageService.replicate(entry, true);
+            }
+            applied += entries.size();
+            if (entries.isEmpty() || page.nextSeq() > page.lastSeq()) break;
+            from = page.nextSeq();
+        }
+
+        log.info("Caught up with {} through seq {} ({} log entries in {} ms)",
+                leader, storageService.getAppliedSeq(), applied, System.currentTimeMillis() - started);
+    }
+
+    private long loadSnapshot() {
+        Long seq = restTemplate.execute(leader + "/replication/snapshot", HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(ReplicationCodec.MEDIA_TYPE)),
+                response -> {
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(response.getBody(), 64 * 1024));
+                    long snapshotSeq = ReplicationCodec.readSnapshotHeader(in);
+                    long count = 0;
+                    ReplicationRequest entry;
+                    while ((entry = ReplicationCodec.readSnapshotEntry(in)) != null) {
+                        storageService.replicate(entry, true);
+                        count++;
+                    }
+                    log.info("Loaded snapshot of {} keys at seq {}", count, snapshotSeq);
+                    return snapshotSeq;
+                });
+        long snapshotSeq = seq == null ? 0 : seq;
+        storageService.markAppliedThrough(snapshotSeq);
+        return snapshotSeq;
+    }
+}
@@ -0,0 +1,109 @@
+package com.pr.replication.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling latency window for one follower. The p99 over the last {@code window} acknowledged
+ * deliveries drives both the adaptive request timeout and ejection from quorum counting, with
+ * separate eject/return thresholds so a follower hovering near one limit does not flap.
+ */
+@Log4j2
+class FollowerHealth {
+    private static final int EVALUATE_EVERY = 16;
+
+    private final String url;
+    private final long[] samples;
+    private final int minSamples;
+    private final double timeoutMultiplier;
+    private final long minTimeoutNanos;
+    private final long maxTimeoutNanos;
+    private final long ejectNanos;
+    private final long returnNanos;
+    private final Counter ejections;
+    private final Counter returns;
+
+    private int next;
+    private int count;
+    private int sinceEvaluation;
+    private volatile long p99Nanos;
+    private volatile boolean ejected;
+
+    FollowerHealth(String url, int window, int minSamples, double timeoutMultiplier, long minTimeoutMs,
+                   long maxTimeoutMs, long ejectP99Ms, long returnP99Ms, MeterRegistry registry) {
+        this.url = url;
+        this.samples = new long[window];
+        this.minSamples = Math.min(minSamples, window);
+        this.timeoutMultiplier = timeoutMultiplier;
+        this.minTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(minTimeoutMs);
+        this.maxTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(maxTimeoutMs);
+        this.ejectNanos = TimeUnit.MILLISECONDS.toNanos(ejectP99Ms);
+        this.returnNanos = TimeUnit.MILLISECONDS.toNanos(returnP99Ms);
+        Gauge.builder("replication.follower.ejected", this, h -> h.ejected ? 1 : 0)
+                .tag("follower", url)
+                .register(registry);
+        Gauge.builder("replication.follower.latency.p99", this, h -> h.p99Nanos / 1e6)
+                .tag("follower", url)
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("replication.follower.timeout", this, h -> h.timeoutMillis())
+                .tag("follower", url)
+                .baseUnit("milliseconds")
+                .register(registry);
+        this.ejections = Counter.builder("replication.follower.ejections").tag("follower", url).register(registry);
+        this.returns = Counter.builder("replication.follower.returns").tag("follower", url).register(registry);
+    }
+
+    // A failed delivery counts as a sample at the maximum timeout, so an unreachable follower ranks
+    // as slow rather than looking fast for never answering.
+    void record(boolean ok, long latencyNanos) {
+        record(ok ? latencyNanos : maxTimeoutNanos);
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        if (++sinceEvaluation >= EVALUATE_EVERY) {
+            sinceEvaluation = 0;
+            evaluate();
+        }
+    }
+
+    boolean isEjected() {
+        return ejected;
+    }
+
+    long p99Nanos() {
+        return p99Nanos;
+    }
+
+    long timeoutMillis() {
+        if (count < minSamples)
+            return TimeUnit.NANOSECONDS.toMillis(maxTimeoutNanos);
+        long timeout = (long) (p99Nanos * timeoutMultiplier);
+        return TimeUnit.NANOSECONDS.toMillis(Math.clamp(timeout, minTimeoutNanos, maxTimeoutNanos));
+    }
+
+    private void evaluate() {
+        long[] window = Arrays.copyOf(samples, count);
+        Arrays.sort(window);
+        p99Nanos = window[Math.max(0, (int) Math.ceil(count * 0.99) - 1)];
+        if (count < minSamples) return;
+
+        if (!ejected && p99Nanos > ejectNanos) {
+            ejected = true;
+            ejections.increment();
+            log.warn("Follower {} ejected from quorum counting (p99 {} ms)", url, TimeUnit.NANOSECONDS.toMillis(p99Nanos));
+        } else if (ejected && p99Nanos < returnNanos) {
+            ejected = false;
+            returns.increment();
+            log.info("Follower {} returned to quorum counting (p99 {} ms)", url, TimeUnit.NANOSECONDS.toMillis(p99Nanos));
+        }
+    }
+}
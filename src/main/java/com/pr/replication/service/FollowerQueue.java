@@ -0,0 +1,104 @@
+package com.pr.replication.service;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Log4j2
+class FollowerQueue {
+
+    // A queued update for one key. Newer updates to the same key replace the request in place while
+    // it is still queued; the superseded seqs and futures ride along and settle with the shipped batch.
+    private static final class Pending {
+        private ReplicationRequest request;
+        private final List<Long> supersededSeqs = new ArrayList<>(0);
+        private final List<CompletableFuture<Boolean>> futures = new ArrayList<>(1);
+
+        private Pending(ReplicationRequest request, CompletableFuture<Boolean> future) {
+            this.request = request;
+            this.futures.add(future);
+        }
+
+        private void merge(ReplicationRequest other, CompletableFuture<Boolean> future) {
+            ReplicationRequest superseded = other;
+            if (other.version() >= request.version()) {
+                superseded = request;
+                request = other;
+            }
+            if (superseded.seq() > 0)
+                supersededSeqs.add(superseded.seq());
+            futures.add(future);
+        }
+
+        private void complete(boolean ok) {
+            futures.forEach(f -> f.complete(ok));
+        }
+    }
+
+    private final String url;
+    private final Function<ReplicationBatch, CompletableFuture<Boolean>> shipper;
+    private final Map<String, Pending> queued = new HashMap<>();
+    private final LingerBatcher<Pending> batcher;
+
+    FollowerQueue(String url, int maxBatchSize, long lingerMs, int capacity,
+                  Function<ReplicationBatch, CompletableFuture<Boolean>> shipper) {
+        this.url = url;
+        this.shipper = shipper;
+        this.batcher = new LingerBatcher<>("ReplicationBatcher-" + url, maxBatchSize,
+                TimeUnit.MILLISECONDS.toNanos(lingerMs), capacity, this::ship);
+    }
+
+    CompletableFuture<Boolean> enqueue(ReplicationRequest request) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        synchronized (queued) {
+            Pending existing = queued.get(request.key());
+            if (existing != null) {
+                existing.merge(request, future);
+                return future;
+            }
+            Pending pending = new Pending(request, future);
+            if (!batcher.offer(pending)) {
+                log.warn("Replication queue for {} is full, rejecting {}", url, request.key());
+                future.complete(false);
+                return future;
+            }
+            queued.put(request.key(), pending);
+        }
+        return future;
+    }
+
+    void stop() {
+        List<Pending> remaining = batcher.stop();
+        synchronized (queued) {
+            queued.clear();
+        }
+        remaining.forEach(p -> p.complete(false));
+    }
+
+    private void ship(List<Pending> batch) {
+        List<ReplicationRequest> entries = new ArrayList<>(batch.size());
+        List<Long> supersededSeqs = new ArrayList<>();
+        synchronized (queued) {
+            for (Pending pending : batch) {
+                queued.remove(pending.request.key(), pending);
+                entries.add(pending.request);
+                supersededSeqs.addAll(pending.supersededSeqs);
+            }
+        }
+        try {
+            shipper.apply(new ReplicationBatch(entries, supersededSeqs))
+                    .thenAccept(ok -> batch.forEach(p -> p.complete(ok)));
+        } catch (Exception e) {
+            log.warn("Failed to dispatch batch of {} to {}: {}", batch.size(), url, e.getMessage());
+            batch.forEach(p -> p.complete(false));
+        }
+    }
+}
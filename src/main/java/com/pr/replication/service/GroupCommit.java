@@ -0,0 +1,51 @@
+package com.pr.replication.service;
+
+import com.pr.replication.exception.WriteOperationFailedException;
+import com.pr.replication.model.QuorumResult;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects concurrent leader writes into groups that are applied, replicated and acknowledged
+ * together. A group closes after {@code windowMicros} or once it holds {@code maxGroupSize} writes.
+ */
+@Log4j2
+class GroupCommit {
+
+    record PendingWrite(String key, String value, CompletableFuture<QuorumResult> result) {
+    }
+
+    private final Consumer<List<PendingWrite>> committer;
+    private final LingerBatcher<PendingWrite> batcher;
+
+    GroupCommit(int maxGroupSize, long windowMicros, int capacity, Consumer<List<PendingWrite>> committer) {
+        this.committer = committer;
+        this.batcher = new LingerBatcher<>("GroupCommit", maxGroupSize,
+                TimeUnit.MICROSECONDS.toNanos(windowMicros), capacity, this::commit);
+    }
+
+    CompletableFuture<QuorumResult> submit(String key, String value) {
+        CompletableFuture<QuorumResult> result = new CompletableFuture<>();
+        if (!batcher.offer(new PendingWrite(key, value, result)))
+            result.completeExceptionally(new WriteOperationFailedException("Write queue is full, rejecting " + key));
+        return result;
+    }
+
+    void stop() {
+        batcher.stop().forEach(w -> w.result().completeExceptionally(
+                new WriteOperationFailedException("Shutting down, write to " + w.key() + " was not applied")));
+    }
+
+    private void commit(List<PendingWrite> group) {
+        try {
+            committer.accept(group);
+        } catch (Exception e) {
+            log.warn("Failed to commit group of {} writes: {}", group.size(), e.getMessage());
+            group.forEach(w -> w.result().completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.pr.replication.service;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded retry queue for one follower. Failed deliveries are kept per key, so a newer failed write
+ * replaces an older one and only the newest version is redelivered. Redelivery runs in batches with
+ * exponential backoff and jitter until the follower accepts them. Seqs of hints that are superseded
+ * or dropped are sent along as {@link ReplicationBatch#supersededSeqs()}, so the follower's applied
+ * sequence does not stall on them.
+ */
+@Log4j2
+class HintedHandoff {
+
+    private record Hint(ReplicationRequest request, long failedAtNanos) {
+    }
+
+    private final String url;
+    private final int capacity;
+    private final int batchSize;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final Function<ReplicationBatch, CompletableFuture<Boolean>> shipper;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Hint> hints = new ConcurrentHashMap<>();
+    private final Set<Long> supersededSeqs = ConcurrentHashMap.newKeySet();
+    private final Timer redelivery;
+    private final Counter dropped;
+
+    private int attempt;
+    private boolean scheduled;
+
+    HintedHandoff(String url, int capacity, int batchSize, long initialBackoffMs, long maxBackoffMs,
+                  Function<ReplicationBatch, CompletableFuture<Boolean>> shipper,
+                  ScheduledExecutorService scheduler, MeterRegistry registry) {
+        this.url = url;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.shipper = shipper;
+        this.scheduler = scheduler;
+        Gauge.builder("replication.handoff.depth", hints, Map::size)
+                .tag("follower", url)
+                .register(registry);
+        this.redelivery = Timer.builder("replication.handoff.redelivery")
+                .tag("follower", url)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.dropped = Counter.builder("replication.handoff.dropped")
+                .tag("follower", url)
+                .register(registry);
+    }
+
+    void failed(ReplicationRequest request) {
+        long now = System.nanoTime();
+        if (hints.size() >= capacity && !hints.containsKey(request.key())) {
+            dropped.increment();
+            supersede(request);
+            schedule();
+            return;
+        }
+        hints.merge(request.key(), new Hint(request, now), (older, newer) -> {
+            if (newer.request().version() > older.request().version()) {
+                supersede(older.request());
+                return new Hint(newer.request(), older.failedAtNanos());
+            }
+            if (newer.request().seq() != older.request().seq())
+                supersede(newer.request());
+            return older;
+        });
+        schedule();
+    }
+
+    // A newer write reached the follower through the normal path, so an older hint is obsolete.
+    void delivered(ReplicationRequest request) {
+        if (hints.isEmpty()) return;
+        Hint[] obsolete = new Hint[1];
+        hints.computeIfPresent(request.key(), (key, hint) -> {
+            if (hint.request().version() > request.version())
+                return hint;
+            obsolete[0] = hint;
+            return null;
+        });
+        if (obsolete[0] != null && obsolete[0].request().seq() != request.seq()) {
+            supersede(obsolete[0].request());
+            schedule();
+        }
+    }
+
+    private void supersede(ReplicationRequest request) {
+        if (request.seq() <= 0) return;
+        if (supersededSeqs.size() >= capacity) {
+            dropped.increment();
+            return;
+        }
+        supersededSeqs.add(request.seq());
+    }
+
+    private boolean isIdle() {
+        return hints.isEmpty() && supersededSeqs.isEmpty();
+    }
+
+    private synchronized void schedule() {
+        if (scheduled || isIdle()) return;
+        scheduled = true;
+        scheduler.schedule(this::redeliver, backoffMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private long backoffMs() {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt, 30));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private void redeliver() {
+        List<Hint> batch = new ArrayList<>(batchSize);
+        for (Hint hint : hints.values()) {
+            if (batch.size() >= batchSize) break;
+            batch.add(hint);
+        }
+
+        List<Long> seqs = List.copyOf(supersededSeqs);
+
+        CompletableFuture<Boolean> shipped;
+        try {
+            shipped = shipper.apply(new ReplicationBatch(batch.stream().map(Hint::request).toList(), seqs, true));
+        } catch (Exception e) {
+            shipped = CompletableFuture.completedFuture(false);
+        }
+        shipped.exceptionally(e -> false).thenAccept(ok -> finish(ok, batch, seqs));
+    }
+
+    private void finish(boolean ok, List<Hint> batch, List<Long> seqs) {
+        long now = System.nanoTime();
+        if (ok) {
+            for (Hint hint : batch) {
+                if (hints.remove(hint.request().key(), hint))
+                    redelivery.record(now - hint.failedAtNanos(), TimeUnit.NANOSECONDS);
+            }
+            seqs.forEach(supersededSeqs::remove);
+            if (!batch.isEmpty())
+                log.info("Redelivered {} hinted updates to {}, {} left", batch.size(), url, hints.size());
+        }
+
+        synchronized (this) {
+            if (!ok && attempt == 0)
+                log.warn("Follower {} unreachable, holding {} hinted updates", url, hints.size());
+            attempt = ok ? 0 : attempt + 1;
+            scheduled = false;
+            if (isIdle()) return;
+            scheduled = true;
+            scheduler.schedule(this::redeliver, ok ? 0 : backoffMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
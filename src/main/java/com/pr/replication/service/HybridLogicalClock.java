@@ -0,0 +1,48 @@
+package com.pr.replication.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Versions are {@code physicalMillis << 16 | counter}. The counter orders writes within one
+ * millisecond and keeps versions strictly increasing if the wall clock steps backwards.
+ */
+@Component
+public class HybridLogicalClock {
+    private static final int COUNTER_BITS = 16;
+
+    private final AtomicLong last = new AtomicLong();
+    private final LongSupplier wallClock;
+
+    public HybridLogicalClock() {
+        this(System::currentTimeMillis);
+    }
+
+    HybridLogicalClock(LongSupplier wallClock) {
+        this.wallClock = wallClock;
+    }
+
+    public long now() {
+        long physical = wallClock.getAsLong() << COUNTER_BITS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            next = Math.max(previous + 1, physical);
+        } while (!last.compareAndSet(previous, next));
+        return next;
+    }
+
+    public void observe(long version) {
+        long previous;
+        do {
+            previous = last.get();
+        } while (version > previous && !last.compareAndSet(previous, version));
+    }
+
+    public static long physicalMillis(long version) {
+        return version >>> COUNTER_BITS;
+    }
+}
@@ -0,0 +1,81 @@
+package com.pr.replication.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue drained by one thread into batches. A batch opens with the first item to arrive and
+ * closes once it holds {@code maxBatchSize} items or {@code lingerNanos} have passed since it opened;
+ * it is then handed to {@code handler} on the drain thread, which must not throw.
+ */
+final class LingerBatcher<T> {
+
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Consumer<List<T>> handler;
+    private final BlockingQueue<T> queue;
+    private final Thread drainer;
+
+    private volatile boolean running = true;
+
+    LingerBatcher(String name, int maxBatchSize, long lingerNanos, int capacity, Consumer<List<T>> handler) {
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = lingerNanos;
+        this.handler = handler;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.drainer = Thread.ofPlatform()
+                .name(name)
+                .daemon(true)
+                .start(this::drain);
+    }
+
+    /** Returns {@code false} if the queue is full. */
+    boolean offer(T item) {
+        return queue.offer(item);
+    }
+
+    /** Stops the drain thread and returns whatever was still queued. */
+    List<T> stop() {
+        running = false;
+        drainer.interrupt();
+        List<T> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        return remaining;
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                handler.accept(nextBatch());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private List<T> nextBatch() throws InterruptedException {
+        List<T> batch = new ArrayList<>(maxBatchSize);
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + lingerNanos;
+
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0)
+                continue;
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                break;
+
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null)
+                break;
+            batch.add(next);
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,55 @@
+package com.pr.replication.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Merkle tree over {@link #LEAVES} key-hash ranges. A leaf is the XOR of the hashes of every
+ * (key, version) in its range, so a write updates it in O(1) without reading the range. Inner nodes
+ * are rebuilt on demand in heap layout: node 1 is the root, node {@code i} has children {@code 2i}
+ * and {@code 2i + 1}, and leaves are nodes {@code LEAVES .. 2 * LEAVES - 1}.
+ */
+public class MerkleTree {
+    public static final int LEAVES = 1024;
+
+    private static final int LEAF_BITS = Integer.numberOfTrailingZeros(LEAVES);
+
+    private final AtomicLongArray leaves = new AtomicLongArray(LEAVES);
+
+    public static int leafOf(String key) {
+        return (int) (mix(key.hashCode()) >>> (Long.SIZE - LEAF_BITS));
+    }
+
+    public static boolean isNode(int node) {
+        return node >= 1 && node < 2 * LEAVES;
+    }
+
+    public static boolean isLeaf(int node) {
+        return node >= LEAVES;
+    }
+
+    public void update(String key, long before, long after) {
+        long delta = hash(key, before) ^ hash(key, after);
+        if (delta != 0)
+            leaves.accumulateAndGet(leafOf(key), delta, (a, b) -> a ^ b);
+    }
+
+    public long[] nodes() {
+        long[] nodes = new long[2 * LEAVES];
+        for (int leaf = 0; leaf < LEAVES; leaf++)
+            nodes[LEAVES + leaf] = leaves.get(leaf);
+        for (int node = LEAVES - 1; node >= 1; node--)
+            nodes[node] = mix(nodes[2 * node] * 31 + nodes[2 * node + 1]);
+        return nodes;
+    }
+
+    // Version -1 stands for "absent" and contributes nothing to its leaf.
+    private static long hash(String key, long version) {
+        return version < 0 ? 0 : mix(mix(key.hashCode()) ^ version);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,53 @@
+package com.pr.replication.service;
+
+import com.pr.replication.model.ReplicationRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ReplicationLog {
+
+    private final ConcurrentSkipListMap<Long, ReplicationRequest> entries = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastSeq = new AtomicLong(0);
+
+    @Value("${replication.log.capacity:100000}")
+    private long capacity;
+
+    public ReplicationRequest append(String key, String value, long version) {
+        long seq = lastSeq.incrementAndGet();
+        ReplicationRequest entry = new ReplicationRequest(key, value, version, seq);
+        entries.put(seq, entry);
+        if (seq > capacity)
+            entries.remove(seq - capacity);
+        return entry;
+    }
+
+    public void restore(ReplicationRequest entry) {
+        entries.put(entry.seq(), entry);
+        long last = lastSeq.accumulateAndGet(entry.seq(), Math::max);
+        if (last > capacity)
+            entries.headMap(last - capacity, true).clear();
+    }
+
+    public void restoreLastSeq(long seq) {
+        lastSeq.accumulateAndGet(seq, Math::max);
+    }
+
+    public long lastSeq() {
+        return lastSeq.get();
+    }
+
+    public long firstSeq() {
+        Map.Entry<Long, ReplicationRequest> first = entries.firstEntry();
+        return first == null ? lastSeq.get() + 1 : first.getKey();
+    }
+
+    public ConcurrentNavigableMap<Long, ReplicationRequest> since(long seq) {
+        return entries.tailMap(seq, true);
+    }
+}
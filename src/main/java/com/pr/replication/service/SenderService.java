@@ -1,25 +1,78 @@
 package com.pr.replication.service;
 
+import com.pr.replication.codec.ReplicationCodec;
+import com.pr.replication.model.ReplicationBatch;
 import com.pr.replication.model.ReplicationRequest;
+import com.pr.replication.stream.ReplicationStreamClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Log4j2
 public class SenderService {
 
+    public enum Mode {
+        DIRECT,
+        BATCH,
+        STREAM
+    }
+
+    public enum PostQuorum {
+        INLINE,
+        BACKGROUND
+    }
+
+    public enum WireFormat {
+        JSON,
+        BINARY
+    }
+
     private static final int MIN_DELAY = 0;
     private static final int MAX_DELAY = 1000;
+    private static final Future<?> SETTLED = CompletableFuture.completedFuture(null);
 
     private final RestTemplate restTemplate;
+    private final Map<String, FollowerQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, ReplicationStreamClient> streams = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> limiters = new ConcurrentHashMap<>();
+    private final Map<String, WireFormat> wireFormats = new ConcurrentHashMap<>();
+    private final Map<String, HintedHandoff> handoffs = new ConcurrentHashMap<>();
+    private final Map<String, FollowerHealth> health = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Executor taskExecutor;
+    private ScheduledExecutorService handoffScheduler;
+    private ExecutorService backgroundExecutor;
     private SenderService self;
 
     @Value("${replication.followers:}")
@@ -28,29 +81,345 @@ public class SenderService {
     @Value("${follower.endpoint:/replicate}")
     private String endpoint;
 
+    @Value("${follower.batch-endpoint:/replicate-batch}")
+    private String batchEndpoint;
+
     @Value("${delay.simulation:false}")
     private boolean delay;
 
+    @Value("${replication.stream.port:9090}")
+    private int streamPort;
+
+    @Value("${replication.stream.reconnect-backoff-ms:1000}")
+    private long streamReconnectBackoffMs;
+
+    @Value("${replication.http.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${replication.http.read-timeout-ms:5000}")
+    private int readTimeoutMs;
+
+    @Value("${replication.executor.follower-concurrency:64}")
+    private int followerConcurrency;
+
+    @Value("${replication.wire-format:binary}")
+    private WireFormat wireFormat;
+
+    @Value("${replication.send-mode:direct}")
+    private Mode mode;
+
+    @Value("${replication.batch.max-size:64}")
+    private int batchMaxSize;
+
+    @Value("${replication.batch.linger-ms:5}")
+    private long batchLingerMs;
+
+    @Value("${replication.batch.queue-capacity:10000}")
+    private int batchQueueCapacity;
+
+    @Value("${replication.handoff.enabled:true}")
+    private boolean handoffEnabled;
+
+    @Value("${replication.handoff.capacity:100000}")
+    private int handoffCapacity;
+
+    @Value("${replication.handoff.batch-size:256}")
+    private int handoffBatchSize;
+
+    @Value("${replication.handoff.initial-backoff-ms:100}")
+    private long handoffInitialBackoffMs;
+
+    @Value("${replication.handoff.max-backoff-ms:30000}")
+    private long handoffMaxBackoffMs;
+
+    @Value("${replication.adaptive.enabled:false}")
+    private boolean adaptive;
+
+    @Value("${replication.adaptive.window:256}")
+    private int adaptiveWindow;
 
-    public SenderService(@Lazy SenderService self, RestTemplate restTemplate) {
+    @Value("${replication.adaptive.min-samples:32}")
+    private int adaptiveMinSamples;
+
+    @Value("${replication.adaptive.timeout-multiplier:3.0}")
+    private double timeoutMultiplier;
+
+    @Value("${replication.adaptive.min-timeout-ms:50}")
+    private long minTimeoutMs;
+
+    @Value("${replication.adaptive.max-timeout-ms:5000}")
+    private long maxTimeoutMs;
+
+    @Value("${replication.adaptive.eject-p99-ms:1000}")
+    private long ejectP99Ms;
+
+    @Value("${replication.adaptive.return-p99-ms:500}")
+    private long returnP99Ms;
+
+    @Value("${replication.targeted.enabled:false}")
+    private boolean targeted;
+
+    @Value("${replication.targeted.hedge:1}")
+    private int hedge;
+
+    @Value("${replication.targeted.background-threads:8}")
+    private int backgroundThreads;
+
+    @Value("${replication.post-quorum:inline}")
+    private PostQuorum postQuorum;
+
+    public SenderService(@Lazy SenderService self, RestTemplate restTemplate, MeterRegistry meterRegistry,
+                         @Qualifier("taskExecutor") Executor taskExecutor) {
         this.self = self;
         this.restTemplate = restTemplate;
+        this.meterRegistry = meterRegistry;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @PostConstruct
+    void init() {
+        if (followerConcurrency > 0) {
+            followers.forEach(url -> limiters.put(url, new Semaphore(followerConcurrency)));
+        }
+        followers.forEach(url -> wireFormats.put(url, wireFormat));
+        if (mode == Mode.BATCH) startQueues();
+        if (mode == Mode.STREAM) startStreams();
+        if (handoffEnabled && !followers.isEmpty()) startHandoffs();
+        if (adaptive || targeted) {
+            // Targeted mode alone only needs the latency ranking, so its followers are never ejected.
+            long ejectAt = adaptive ? ejectP99Ms : Long.MAX_VALUE;
+            followers.forEach(url -> health.put(url, new FollowerHealth(url, adaptiveWindow, adaptiveMinSamples,
+                    timeoutMultiplier, minTimeoutMs, maxTimeoutMs, ejectAt, returnP99Ms, meterRegistry)));
+        }
+        if (targeted || postQuorum == PostQuorum.BACKGROUND) startBackgroundLane();
+    }
+
+    private void startBackgroundLane() {
+        backgroundExecutor = new ThreadPoolExecutor(backgroundThreads, backgroundThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchQueueCapacity),
+                Thread.ofPlatform().name("ReplicationBackground-", 0).daemon(true).factory());
+        log.info("Background replication lane started with {} threads (targeted={}, post-quorum={})",
+                backgroundThreads, targeted, postQuorum);
+    }
+
+    private void startHandoffs() {
+        handoffScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("ReplicationHandoff").daemon(true).factory());
+        for (String url : followers) {
+            handoffs.put(url, new HintedHandoff(url, handoffCapacity, handoffBatchSize, handoffInitialBackoffMs,
+                    handoffMaxBackoffMs, batch -> self.sendBatchAsync(url, batch), handoffScheduler, meterRegistry));
+        }
+    }
+
+    private void startStreams() {
+        for (String url : followers) {
+            String host = URI.create(url).getHost();
+            streams.put(url, new ReplicationStreamClient(host, streamPort, connectTimeoutMs, readTimeoutMs,
+                    streamReconnectBackoffMs, batchQueueCapacity));
+        }
+        log.info("Streaming replication enabled for {} followers on port {}", followers.size(), streamPort);
+    }
+
+    private void startQueues() {
+        for (String url : followers) {
+            queues.put(url, new FollowerQueue(url, batchMaxSize, batchLingerMs, batchQueueCapacity,
+                    batch -> self.sendBatchAsync(url, batch)));
+        }
+        log.info("Batched replication enabled for {} followers (max-size={}, linger={}ms)",
+                followers.size(), batchMaxSize, batchLingerMs);
+    }
+
+    @PreDestroy
+    void stop() {
+        queues.values().forEach(FollowerQueue::stop);
+        streams.values().forEach(ReplicationStreamClient::close);
+        if (handoffScheduler != null) handoffScheduler.shutdownNow();
+        if (backgroundExecutor != null) backgroundExecutor.shutdownNow();
     }
 
     @Async
     public CompletableFuture<Boolean> sendReplicationAsync(String url, ReplicationRequest body) {
+        return CompletableFuture.completedFuture(post(url, endpoint, body));
+    }
+
+    @Async
+    public CompletableFuture<Boolean> sendBatchAsync(String url, ReplicationBatch batch) {
+        return CompletableFuture.completedFuture(post(url, batchEndpoint, batch));
+    }
+
+    private boolean post(String url, String path, Object body) {
+        Semaphore permits = limiters.get(url);
+        try {
+            if (permits != null) permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
         try {
             if (delay) Thread.sleep(ThreadLocalRandom.current().nextInt(MIN_DELAY, MAX_DELAY + 1));
-            restTemplate.postForEntity(url + endpoint, body, Void.class);
-            return CompletableFuture.completedFuture(true);
+            exchange(url, path, body);
+            return true;
         } catch (Exception e) {
-            return CompletableFuture.completedFuture(false);
+            return false;
+        } finally {
+            if (permits != null) permits.release();
         }
     }
 
-    public List<CompletableFuture<Boolean>> sendToAllFollowers(ReplicationRequest body) {
-        return followers.stream()
-                .map(url -> self.sendReplicationAsync(url, body))
+    private void exchange(String url, String path, Object body) {
+        WireFormat format = wireFormats.getOrDefault(url, WireFormat.JSON);
+        try {
+            restTemplate.postForEntity(url + path, entity(body, format), Void.class);
+        } catch (HttpClientErrorException.UnsupportedMediaType e) {
+            if (format == WireFormat.JSON) throw e;
+            log.info("Follower {} does not accept {}, falling back to JSON", url, ReplicationCodec.MEDIA_TYPE_VALUE);
+            wireFormats.put(url, WireFormat.JSON);
+            restTemplate.postForEntity(url + path, entity(body, WireFormat.JSON), Void.class);
+        }
+    }
+
+    private static HttpEntity<Object> entity(Object body, WireFormat format) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(format == WireFormat.BINARY ? ReplicationCodec.MEDIA_TYPE : MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body, headers);
+    }
+
+    /**
+     * Sends to every follower and returns the acknowledgements that count towards the quorum. With
+     * adaptive mode on, ejected followers still receive the write but are left out of the result,
+     * unless that would leave fewer than {@code quorum} followers to count. In targeted mode only the
+     * {@code quorum + hedge} historically fastest of those are sent to on the critical path; the rest
+     * go through the background lane and are not counted. {@code settled} completes once the write's
+     * quorum outcome is known; direct sends that only start after that take the background lane.
+     */
+    public List<CompletableFuture<Boolean>> sendToAllFollowers(ReplicationRequest body, int quorum, Future<?> settled) {
+        return sendToAllFollowers(List.of(body), quorum, settled);
+    }
+
+    /**
+     * Group variant of {@link #sendToAllFollowers(ReplicationRequest, int, Future)}: a follower acks
+     * once it has acknowledged every entry. In direct mode the group goes out as one batch request.
+     */
+    public List<CompletableFuture<Boolean>> sendToAllFollowers(List<ReplicationRequest> body, int quorum,
+                                                               Future<?> settled) {
+        if (health.isEmpty()) {
+            return followers.stream()
+                    .map(url -> withHandoff(url, body, send(url, body, settled)))
+                    .toList();
+        }
+
+        List<String> counted = countedFollowers(quorum);
+        if (targeted)
+            counted = fastest(counted, Math.max(quorum, 0) + hedge);
+        List<CompletableFuture<Boolean>> acks = new ArrayList<>(counted.size());
+        for (String url : followers) {
+            FollowerHealth follower = health.get(url);
+            boolean critical = counted.contains(url);
+            long started = System.nanoTime();
+            CompletableFuture<Boolean> sent = withHandoff(url, body,
+                    critical || !targeted ? send(url, body, settled) : sendInBackground(url, body));
+            sent.thenAccept(ok -> follower.record(ok, System.nanoTime() - started));
+            // The adaptive timeout only bounds how long the quorum waits; the send itself runs on
+            // until the HTTP read timeout and its outcome still feeds the follower's health.
+            if (critical)
+                acks.add(adaptive
+                        ? sent.copy().completeOnTimeout(false, follower.timeoutMillis(), TimeUnit.MILLISECONDS)
+                        : sent);
+        }
+        return acks;
+    }
+
+    private List<String> fastest(List<String> candidates, int count) {
+        if (candidates.size() <= count)
+            return candidates;
+        return candidates.stream()
+                .sorted(Comparator.comparingLong(url -> health.get(url).p99Nanos()))
+                .limit(count)
                 .toList();
     }
+
+    private CompletableFuture<Boolean> sendInBackground(String url, List<ReplicationRequest> body) {
+        if (mode != Mode.DIRECT)
+            return send(url, body, SETTLED);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        postInBackground(url, body, result);
+        return result;
+    }
+
+    private void postInBackground(String url, List<ReplicationRequest> body, CompletableFuture<Boolean> result) {
+        try {
+            backgroundExecutor.execute(() -> result.complete(post(url, body)));
+        } catch (RejectedExecutionException e) {
+            result.complete(false);
+        }
+    }
+
+    // Runs on the async executor like sendReplicationAsync, but a task that only gets a thread after
+    // its write has already settled hands the request to the background lane instead, so stragglers
+    // never hold up sends for newer writes.
+    private CompletableFuture<Boolean> sendDeferrable(String url, List<ReplicationRequest> body, Future<?> settled) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            taskExecutor.execute(() -> {
+                if (settled.isDone())
+                    postInBackground(url, body, result);
+                else
+                    result.complete(post(url, body));
+            });
+        } catch (RejectedExecutionException e) {
+            postInBackground(url, body, result);
+        }
+        return result;
+    }
+
+    private List<String> countedFollowers(int quorum) {
+        List<String> healthy = followers.stream().filter(url -> !health.get(url).isEjected()).toList();
+        if (healthy.size() >= quorum)
+            return healthy;
+        List<String> counted = new ArrayList<>(healthy);
+        followers.stream()
+                .filter(url -> health.get(url).isEjected())
+                .sorted(Comparator.comparingLong(url -> health.get(url).p99Nanos()))
+                .limit(quorum - healthy.size())
+                .forEach(counted::add);
+        return counted;
+    }
+
+    private CompletableFuture<Boolean> send(String url, List<ReplicationRequest> body, Future<?> settled) {
+        return switch (mode) {
+            case BATCH -> allAcked(body.stream().map(queues.get(url)::enqueue).toList());
+            case STREAM -> allAcked(body.stream().map(streams.get(url)::send).toList());
+            case DIRECT -> {
+                if (postQuorum == PostQuorum.BACKGROUND)
+                    yield sendDeferrable(url, body, settled);
+                yield body.size() == 1
+                        ? self.sendReplicationAsync(url, body.getFirst())
+                        : self.sendBatchAsync(url, new ReplicationBatch(body));
+            }
+        };
+    }
+
+    private boolean post(String url, List<ReplicationRequest> body) {
+        return body.size() == 1
+                ? post(url, endpoint, body.getFirst())
+                : post(url, batchEndpoint, new ReplicationBatch(body));
+    }
+
+    private static CompletableFuture<Boolean> allAcked(List<CompletableFuture<Boolean>> sent) {
+        if (sent.size() == 1)
+            return sent.getFirst();
+        return CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> sent.stream().allMatch(CompletableFuture::join));
+    }
+
+    private CompletableFuture<Boolean> withHandoff(String url, List<ReplicationRequest> body,
+                                                   CompletableFuture<Boolean> sent) {
+        HintedHandoff handoff = handoffs.get(url);
+        if (handoff == null) return sent;
+        return sent.exceptionally(e -> false).thenApply(ok -> {
+            if (ok) body.forEach(handoff::delivered);
+            else body.forEach(handoff::failed);
+            return ok;
+        });
+    }
 }
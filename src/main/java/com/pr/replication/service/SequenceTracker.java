@@ -0,0 +1,100 @@
+package com.pr.replication.service;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the highest seq below which everything has been applied. Seqs that arrive out of order wait
+ * in {@code pending}; once more than {@code maxPending} are waiting the oldest hole is given up on, so
+ * a seq that never arrives cannot grow the set forever. {@link #stalledNanos()} tells how long the
+ * contiguous seq has been stuck behind a hole, for catch-up to fill it before that happens.
+ */
+@Log4j2
+class SequenceTracker {
+
+    static final int DEFAULT_MAX_PENDING = 1 << 20;
+
+    private final TreeSet<Long> pending = new TreeSet<>();
+    private final LongSupplier nanoTime;
+    private final int maxPending;
+    private long contiguous;
+    private long highest;
+    private long skipped;
+    private long stalledSince;
+
+    SequenceTracker() {
+        this(System::nanoTime, DEFAULT_MAX_PENDING);
+    }
+
+    SequenceTracker(LongSupplier nanoTime, int maxPending) {
+        this.nanoTime = nanoTime;
+        this.maxPending = maxPending;
+    }
+
+    synchronized void applied(long seq) {
+        if (seq <= contiguous)
+            return;
+        highest = Math.max(highest, seq);
+        if (seq != contiguous + 1) {
+            if (pending.isEmpty())
+                stalledSince = nanoTime.getAsLong();
+            pending.add(seq);
+            if (pending.size() > maxPending)
+                skipOldestHole();
+            return;
+        }
+        contiguous = seq;
+        drainPending();
+    }
+
+    synchronized void advanceTo(long seq) {
+        if (seq <= contiguous)
+            return;
+        contiguous = seq;
+        highest = Math.max(highest, seq);
+        pending.headSet(seq, true).clear();
+        drainPending();
+    }
+
+    synchronized long contiguous() {
+        return contiguous;
+    }
+
+    synchronized long highest() {
+        return highest;
+    }
+
+    /** Seqs below {@link #highest()} that have not been applied yet. */
+    synchronized long missing() {
+        return highest - contiguous - pending.size();
+    }
+
+    /** Seqs given up on because too many later ones were waiting behind them. */
+    synchronized long skipped() {
+        return skipped;
+    }
+
+    /** How long the contiguous seq has been stuck behind a hole, or 0 when there is none. */
+    synchronized long stalledNanos() {
+        return pending.isEmpty() ? 0 : nanoTime.getAsLong() - stalledSince;
+    }
+
+    private void skipOldestHole() {
+        long next = pending.first();
+        log.warn("Giving up on seqs {}..{}, {} later seqs are waiting behind them",
+                contiguous + 1, next - 1, pending.size());
+        skipped += next - contiguous - 1;
+        contiguous = next - 1;
+        drainPending();
+    }
+
+    private void drainPending() {
+        while (!pending.isEmpty() && pending.first() == contiguous + 1) {
+            contiguous = pending.pollFirst();
+        }
+        if (!pending.isEmpty())
+            stalledSince = nanoTime.getAsLong();
+    }
+}
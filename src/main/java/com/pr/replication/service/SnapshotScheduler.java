@@ -0,0 +1,38 @@
+package com.pr.replication.service;
+
+import com.pr.replication.storage.WriteAheadLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+@Log4j2
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "replication.snapshot.enabled", havingValue = "true")
+public class SnapshotScheduler {
+
+    private final StorageService storageService;
+    private final WriteAheadLog writeAheadLog;
+    private long checkpointedAppends;
+
+    @Scheduled(initialDelayString = "${replication.snapshot.interval-ms:60000}",
+            fixedDelayString = "${replication.snapshot.interval-ms:60000}")
+    public void snapshot() {
+        if (!writeAheadLog.isEnabled()) return;
+        long appends = writeAheadLog.appendedCount();
+        if (appends == checkpointedAppends) return;
+
+        long started = System.currentTimeMillis();
+        try {
+            storageService.checkpoint();
+            checkpointedAppends = appends;
+            log.info("Snapshot written in {} ms", System.currentTimeMillis() - started);
+        } catch (IOException e) {
+            log.error("Snapshot failed", e);
+        }
+    }
+}
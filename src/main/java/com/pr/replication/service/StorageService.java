@@ -1,28 +1,58 @@
 package com.pr.replication.service;
 
+import com.pr.replication.codec.ReplicationCodec;
+import com.pr.replication.exception.LogTruncatedException;
 import com.pr.replication.exception.WriteOperationFailedException;
-import com.pr.replication.model.Pair;
+import com.pr.replication.model.LogPage;
+import com.pr.replication.model.Entry;
+import com.pr.replication.model.QuorumResult;
 import com.pr.replication.model.ReplicationRequest;
+import com.pr.replication.storage.MappedSnapshot;
+import com.pr.replication.storage.SnapshotStore;
+import com.pr.replication.storage.StorageEngine;
+import com.pr.replication.storage.WriteAheadLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.HashMap;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 
+@Log4j2
 @Service
 @RequiredArgsConstructor
 public class StorageService {
-    private final Map<String, Pair<String, Instant>> concurrentMap = new ConcurrentHashMap<>();
+    private static final Comparator<String> PAGE_ORDER =
+            Comparator.comparingInt(String::hashCode).thenComparing(Comparator.naturalOrder());
+
+    private final SequenceTracker appliedSequence = new SequenceTracker();
+    private final StorageEngine storageEngine;
     private final SenderService senderService;
+    private final ReplicationLog replicationLog;
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+    private final HybridLogicalClock clock;
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
 
     @Getter
     @Setter
@@ -32,70 +62,439 @@ public class StorageService {
     @Value("${replication.version:false}")
     private boolean withVersion;
 
-    public void write(String key, String value) {
-        Instant now = Instant.now();
-        concurrentMap.put(key, new Pair<>(value, now));
-        if (waitForQuorum(senderService.sendToAllFollowers(new ReplicationRequest(key, value, now)))) {
-            return;
+    @Value("${replication.snapshot.lazy-load:false}")
+    private boolean lazyLoad;
+
+    @Value("${replication.version-index.enabled:true}")
+    private boolean versionIndexEnabled;
+
+    @Value("${replication.group-commit.enabled:false}")
+    private boolean groupCommitEnabled;
+
+    @Value("${replication.group-commit.window-micros:200}")
+    private long groupCommitWindowMicros;
+
+    @Value("${replication.group-commit.max-size:64}")
+    private int groupCommitMaxSize;
+
+    @Value("${replication.group-commit.queue-capacity:10000}")
+    private int groupCommitQueueCapacity;
+
+    private volatile MappedSnapshot lazySnapshot;
+    private GroupCommit groupCommit;
+
+    private final NavigableSet<VersionedKey> versionIndex = new ConcurrentSkipListSet<>();
+    private final NavigableSet<String> keyIndex = new ConcurrentSkipListSet<>(PAGE_ORDER);
+    private final MerkleTree merkleTree = new MerkleTree();
+
+    private record VersionedKey(long version, String key) implements Comparable<VersionedKey> {
+        @Override
+        public int compareTo(VersionedKey other) {
+            int byVersion = Long.compare(version, other.version);
+            return byVersion != 0 ? byVersion : key.compareTo(other.key);
+        }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        recover();
+        if (groupCommitEnabled) {
+            groupCommit = new GroupCommit(groupCommitMaxSize, groupCommitWindowMicros, groupCommitQueueCapacity,
+                    this::commit);
+            log.info("Group commit enabled (window={}us, max-size={})", groupCommitWindowMicros, groupCommitMaxSize);
         }
-        throw new WriteOperationFailedException("Failure to reach specified quorum!");
+    }
+
+    @PreDestroy
+    void stop() {
+        if (groupCommit != null) groupCommit.stop();
+    }
+
+    private void recover() throws IOException {
+        if (!writeAheadLog.isEnabled()) return;
+        long fromSegment = snapshotStore.loadLatest((appliedSeq, body) -> {
+            long lastSeq = body.getLong();
+            if (lazyLoad) {
+                MappedSnapshot snapshot = MappedSnapshot.index(body);
+                snapshot.forEachKey(key -> {
+                    long version = snapshot.version(key);
+                    keyIndex.add(key);
+                    if (versionIndexEnabled)
+                        versionIndex.add(new VersionedKey(version, key));
+                    merkleTree.update(key, -1, version);
+                });
+                clock.observe(snapshot.maxVersion());
+                lazySnapshot = snapshot;
+            } else {
+                ReplicationRequest entry;
+                while ((entry = ReplicationCodec.readSnapshotEntry(body)) != null)
+                    restore(entry);
+            }
+            replicationLog.restoreLastSeq(lastSeq);
+            appliedSequence.advanceTo(appliedSeq);
+        }, (appliedSeq, in) -> {
+            long lastSeq = ReplicationCodec.readSnapshotHeader(in);
+            ReplicationRequest entry;
+            while ((entry = ReplicationCodec.readSnapshotEntry(in)) != null)
+                restore(entry);
+            replicationLog.restoreLastSeq(lastSeq);
+            appliedSequence.advanceTo(appliedSeq);
+        });
+        writeAheadLog.recover(fromSegment, record -> {
+            ReplicationRequest entry = record.entry();
+            clock.observe(entry.version());
+            switch (record.type()) {
+                case WRITE -> {
+                    storageEngine.compute(entry.key(), (k, v) ->
+                            track(k, orSnapshot(k, v), new Entry(entry.value(), entry.version())));
+                    replicationLog.restore(entry);
+                }
+                case REPLICATE -> {
+                    storageEngine.compute(entry.key(), (k, v) -> {
+                        Entry current = orSnapshot(k, v);
+                        return track(k, current, resolve(current, entry, withVersion));
+                    });
+                    if (entry.seq() > 0)
+                        appliedSequence.applied(entry.seq());
+                }
+            }
+        });
+    }
+
+    private void restore(ReplicationRequest entry) {
+        storageEngine.put(entry.key(), new Entry(entry.value(), entry.version()));
+        keyIndex.add(entry.key());
+        if (versionIndexEnabled)
+            versionIndex.add(new VersionedKey(entry.version(), entry.key()));
+        merkleTree.update(entry.key(), -1, entry.version());
+        clock.observe(entry.version());
+    }
+
+    public void checkpoint() throws IOException {
+        long segment;
+        long appliedSeq;
+        checkpointLock.writeLock().lock();
+        try {
+            segment = writeAheadLog.roll();
+            appliedSeq = appliedSequence.contiguous();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+        snapshotStore.write(segment, appliedSeq, this::writeSnapshot);
+        writeAheadLog.truncateBefore(segment);
+    }
+
+    public CompletableFuture<QuorumResult> write(String key, String value) {
+        if (groupCommit != null)
+            return groupCommit.submit(key, value);
+
+        List<CompletableFuture<Void>> durable = new ArrayList<>(1);
+        ReplicationRequest[] entry = new ReplicationRequest[1];
+        guarded(() -> entry[0] = apply(key, value, durable));
+        int required = quorum;
+        CompletableFuture<QuorumResult> settled = new CompletableFuture<>();
+        return waitForQuorum(senderService.sendToAllFollowers(entry[0], required, settled), required, settled)
+                .thenCombine(durable.getFirst(), (result, ignored) -> result)
+                .thenApply(StorageService::requireQuorum);
+    }
+
+    // Applies a whole group under one checkpoint lock, ships it to each follower as a single batch and
+    // settles every write in it with the group's quorum outcome.
+    private void commit(List<GroupCommit.PendingWrite> group) {
+        List<CompletableFuture<Void>> durable = new ArrayList<>(group.size());
+        List<ReplicationRequest> entries = new ArrayList<>(group.size());
+        guarded(() -> group.forEach(w -> entries.add(apply(w.key(), w.value(), durable))));
+        int required = quorum;
+        CompletableFuture<QuorumResult> settled = new CompletableFuture<>();
+        waitForQuorum(senderService.sendToAllFollowers(entries, required, settled), required, settled)
+                .thenCombine(CompletableFuture.allOf(durable.toArray(CompletableFuture[]::new)),
+                        (result, ignored) -> result)
+                .thenApply(StorageService::requireQuorum)
+                .whenComplete((result, error) -> group.forEach(w -> {
+                    if (error != null) w.result().completeExceptionally(error);
+                    else w.result().complete(result);
+                }));
+    }
+
+    private ReplicationRequest apply(String key, String value, List<CompletableFuture<Void>> durable) {
+        ReplicationRequest[] entry = new ReplicationRequest[1];
+        storageEngine.compute(key, (k, v) -> {
+            long version = clock.now();
+            entry[0] = replicationLog.append(key, value, version);
+            durable.add(writeAheadLog.append(WriteAheadLog.RecordType.WRITE, entry[0]));
+            return track(k, orSnapshot(k, v), new Entry(value, version));
+        });
+        return entry[0];
+    }
+
+    private static QuorumResult requireQuorum(QuorumResult result) {
+        if (!result.reached())
+            throw new WriteOperationFailedException("Failure to reach specified quorum! (acks="
+                    + result.acks() + ", nacks=" + result.nacks() + ")");
+        return result;
     }
 
     public String get(String key) {
-        return concurrentMap.getOrDefault(key, new Pair<>("", Instant.now())).getFirst();
+        Entry entry = storageEngine.get(key);
+        if (entry == null && lazySnapshot != null)
+            entry = storageEngine.computeIfAbsent(key, lazySnapshot::get);
+        return Objects.requireNonNullElse(entry, Entry.EMPTY).value();
+    }
+
+    public CompletableFuture<Void> replicate(ReplicationRequest entry) {
+        return replicate(entry, withVersion);
     }
 
-    public void replicate(String key, String value, Instant time) {
-        concurrentMap.compute(key, (k, v) -> {
-            if (!withVersion)
-                return new Pair<>(value, time);
+    /**
+     * @param lastWriterWins keep the current value if it is at least as new as {@code entry}, whatever
+     *                       {@code replication.version} says. Catch-up, repairs and redeliveries need
+     *                       this because live replication may already have applied something newer.
+     */
+    public CompletableFuture<Void> replicate(ReplicationRequest entry, boolean lastWriterWins) {
+        List<CompletableFuture<Void>> durable = new ArrayList<>(1);
+        clock.observe(entry.version());
+        guarded(() -> storageEngine.compute(entry.key(), (k, v) -> {
+            Entry current = orSnapshot(k, v);
+            Entry next = resolve(current, entry, lastWriterWins);
+            if (next != current)
+                durable.add(writeAheadLog.append(WriteAheadLog.RecordType.REPLICATE, entry));
+            return track(k, current, next);
+        }));
+        if (entry.seq() > 0)
+            appliedSequence.applied(entry.seq());
+        return durable.isEmpty() ? CompletableFuture.completedFuture(null) : durable.getFirst();
+    }
 
-            if (v == null)
-                return new Pair<>(value, time);
+    private void guarded(Runnable mutation) {
+        if (!writeAheadLog.isEnabled()) {
+            mutation.run();
+            return;
+        }
+        checkpointLock.readLock().lock();
+        try {
+            mutation.run();
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    // Runs inside the engine's per-key compute, so index updates for one key never interleave.
+    private Entry track(String key, Entry previous, Entry next) {
+        if (previous == null && next != null)
+            keyIndex.add(key);
+        else if (previous != null && next == null)
+            keyIndex.remove(key);
+        long before = previous == null ? -1 : previous.version();
+        long after = next == null ? -1 : next.version();
+        if (before != after) {
+            if (versionIndexEnabled) {
+                if (previous != null)
+                    versionIndex.remove(new VersionedKey(before, key));
+                if (next != null)
+                    versionIndex.add(new VersionedKey(after, key));
+            }
+            merkleTree.update(key, before, after);
+        }
+        return next;
+    }
 
-            if (time.isAfter(v.getSecond()))
-                return new Pair<>(value, time);
+    private Entry orSnapshot(String key, Entry current) {
+        MappedSnapshot snapshot = lazySnapshot;
+        return current != null || snapshot == null ? current : snapshot.get(key);
+    }
 
-            return v;
+    // Keys still held by a lazily loaded snapshot are visited first, preferring the in-memory value
+    // once one exists, so a key materialized mid-iteration is neither skipped nor repeated.
+    public void forEachEntry(BiConsumer<String, Entry> action) {
+        MappedSnapshot snapshot = lazySnapshot;
+        if (snapshot == null) {
+            storageEngine.forEach(action);
+            return;
+        }
+        snapshot.forEachKey(key -> {
+            Entry entry = storageEngine.get(key);
+            action.accept(key, entry != null ? entry : snapshot.get(key));
+        });
+        storageEngine.forEach((key, entry) -> {
+            if (!snapshot.containsKey(key))
+                action.accept(key, entry);
         });
     }
 
-    private boolean waitForQuorum(List<CompletableFuture<Boolean>> futures) {
+    private Entry resolve(Entry current, ReplicationRequest entry, boolean lastWriterWins) {
+        if (!lastWriterWins)
+            return new Entry(entry.value(), entry.version());
+
+        if (current == null)
+            return new Entry(entry.value(), entry.version());
+
+        if (entry.version() > current.version())
+            return new Entry(entry.value(), entry.version());
 
-        AtomicInteger ok = new AtomicInteger(0);
-        AtomicBoolean failed = new AtomicBoolean(false);
+        return current;
+    }
+
+    private CompletableFuture<QuorumResult> waitForQuorum(List<CompletableFuture<Boolean>> futures, int required,
+                                                          CompletableFuture<QuorumResult> done) {
+        int total = futures.size();
+        if (required <= 0) {
+            done.complete(new QuorumResult(0, 0, true));
+            return done;
+        }
+        if (total < required) {
+            done.complete(new QuorumResult(0, 0, false));
+            return done;
+        }
 
-        CompletableFuture<Void> done = new CompletableFuture<>();
+        AtomicInteger acks = new AtomicInteger(0);
+        AtomicInteger nacks = new AtomicInteger(0);
 
         for (CompletableFuture<Boolean> f : futures) {
             f.thenAccept(result -> {
                 if (done.isDone()) return;
 
                 if (!result) {
-                    failed.set(true);
-                    done.complete(null);
+                    int failed = nacks.incrementAndGet();
+                    if (total - failed < required)
+                        done.complete(new QuorumResult(acks.get(), failed, false));
                     return;
                 }
 
-                if (ok.incrementAndGet() >= quorum) {
-                    done.complete(null);
+                int ok = acks.incrementAndGet();
+                if (ok >= required)
+                    done.complete(new QuorumResult(ok, nacks.get(), true));
+            });
+        }
+
+        return done;
+    }
+
+    public long getAppliedSeq() {
+        return appliedSequence.contiguous();
+    }
+
+    public void markAppliedThrough(long seq) {
+        appliedSequence.advanceTo(seq);
+    }
+
+    public void markApplied(long seq) {
+        appliedSequence.applied(seq);
+    }
+
+    public long getMissingSeqs() {
+        return appliedSequence.missing();
+    }
+
+    public long getSkippedSeqs() {
+        return appliedSequence.skipped();
+    }
+
+    public long getSequenceStalledNanos() {
+        return appliedSequence.stalledNanos();
+    }
+
+    public LogPage readLog(long from, int limit) {
+        long last = replicationLog.lastSeq();
+        if (from < replicationLog.firstSeq() || from > last + 1)
+            throw new LogTruncatedException("Replication log no longer covers seq " + from);
+
+        List<ReplicationRequest> entries = new ArrayList<>(Math.min(limit, 1024));
+        for (ReplicationRequest entry : replicationLog.since(from).values()) {
+            if (entries.size() >= limit) break;
+            entries.add(entry);
+        }
+        long next = entries.isEmpty() ? from : entries.getLast().seq() + 1;
+        return new LogPage(entries, next, last);
+    }
+
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        ReplicationCodec.writeSnapshotHeader(out, replicationLog.lastSeq());
+        try {
+            forEachEntry((key, entry) -> {
+                try {
+                    ReplicationCodec.writeSnapshotEntry(out, new ReplicationRequest(key, entry.value(), entry.version(), 0));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
             });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+        ReplicationCodec.writeSnapshotEnd(out);
+    }
 
-        done.join();
-        return !failed.get() && ok.get() >= quorum;
+    public void forEachChangedSince(long version, int limit, BiConsumer<String, Entry> action) {
+        if (version == Long.MAX_VALUE)
+            return;
+        if (!versionIndexEnabled) {
+            scanChangedSince(version, limit, action);
+            return;
+        }
+        int emitted = 0;
+        for (VersionedKey changed : versionIndex.tailSet(new VersionedKey(version + 1, ""), true)) {
+            if (emitted >= limit)
+                break;
+            Entry entry = orSnapshot(changed.key(), storageEngine.get(changed.key()));
+            if (entry == null || entry.version() != changed.version())
+                continue;
+            action.accept(changed.key(), entry);
+            emitted++;
+        }
     }
 
-    public Map<String, String> getAllData() {
-        Map<String, String> result = new HashMap<>();
-        concurrentMap.forEach((key, pair) -> result.put(key, pair.getFirst()));
-        return result;
+    // Without the version index every call walks the whole store, keeping the oldest `limit` changes.
+    private void scanChangedSince(long version, int limit, BiConsumer<String, Entry> action) {
+        Comparator<Map.Entry<String, Entry>> byVersion = Comparator.comparingLong(e -> e.getValue().version());
+        PriorityQueue<Map.Entry<String, Entry>> oldest = new PriorityQueue<>(byVersion.reversed());
+        forEachEntry((key, entry) -> {
+            if (entry.version() <= version)
+                return;
+            oldest.add(Map.entry(key, entry));
+            if (oldest.size() > limit)
+                oldest.poll();
+        });
+        List<Map.Entry<String, Entry>> changed = new ArrayList<>(oldest);
+        changed.sort(byVersion);
+        changed.forEach(e -> action.accept(e.getKey(), e.getValue()));
     }
 
-    public Map<String, Long> getAllVersions() {
-        Map<String, Long> result = new HashMap<>();
-        concurrentMap.forEach((key, pair) -> result.put(key, pair.getSecond().toEpochMilli()));
-        return result;
+    public long[] merkleNodes() {
+        return merkleTree.nodes();
+    }
+
+    public void forEachInLeaves(Collection<Integer> leafNodes, BiConsumer<String, Entry> action) {
+        boolean[] selected = new boolean[MerkleTree.LEAVES];
+        leafNodes.forEach(node -> selected[node - MerkleTree.LEAVES] = true);
+        forEachEntry((key, entry) -> {
+            if (selected[MerkleTree.leafOf(key)])
+                action.accept(key, entry);
+        });
+    }
+
+    public Map<String, Long> getReplicationStatus() {
+        return Map.of(
+                "firstSeq", replicationLog.firstSeq(),
+                "lastSeq", replicationLog.lastSeq(),
+                "appliedSeq", appliedSequence.contiguous(),
+                "highestSeq", appliedSequence.highest()
+        );
+    }
+
+    // Pages walk the key index in (hash, key) order from the cursor, so a page costs O(limit log N)
+    // whatever the store size. Keys written behind the cursor while paging are not revisited.
+    public List<Map.Entry<String, Entry>> page(String after, int limit) {
+        NavigableSet<String> keys = after == null ? keyIndex : keyIndex.tailSet(after, false);
+        MappedSnapshot snapshot = lazySnapshot;
+        List<Map.Entry<String, Entry>> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String key : keys) {
+            if (page.size() >= limit)
+                break;
+            Entry entry = storageEngine.get(key);
+            if (entry == null && snapshot != null)
+                entry = snapshot.get(key);
+            if (entry != null)
+                page.add(Map.entry(key, entry));
+        }
+        return page;
     }
 }
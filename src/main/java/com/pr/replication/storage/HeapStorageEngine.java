@@ -0,0 +1,43 @@
+package com.pr.replication.storage;
+
+import com.pr.replication.model.Entry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+public class HeapStorageEngine implements StorageEngine {
+    private final Map<String, Entry> concurrentMap = new ConcurrentHashMap<>();
+
+    @Override
+    public Entry get(String key) {
+        return concurrentMap.get(key);
+    }
+
+    @Override
+    public Entry compute(String key, BiFunction<String, Entry, Entry> remapping) {
+        return concurrentMap.compute(key, remapping);
+    }
+
+    @Override
+    public Entry computeIfAbsent(String key, Function<String, Entry> mapping) {
+        return concurrentMap.computeIfAbsent(key, mapping);
+    }
+
+    @Override
+    public void put(String key, Entry value) {
+        concurrentMap.put(key, value);
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Entry> action) {
+        concurrentMap.forEach(action);
+    }
+
+    @Override
+    public int size() {
+        return concurrentMap.size();
+    }
+}
@@ -0,0 +1,82 @@
+package com.pr.replication.storage;
+
+import com.pr.replication.codec.ReplicationCodec;
+import com.pr.replication.model.Entry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Read-only view of a memory-mapped snapshot body. Only keys and value offsets are indexed on the
+ * heap; values stay in the mapped file and are decoded on demand with absolute reads, so lookups
+ * are safe from any thread.
+ */
+public final class MappedSnapshot {
+
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> offsets;
+    private final long maxVersion;
+
+    private MappedSnapshot(ByteBuffer buffer, Map<String, Integer> offsets, long maxVersion) {
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.maxVersion = maxVersion;
+    }
+
+    public static MappedSnapshot index(ByteBuffer body) {
+        ByteBuffer buffer = body.slice();
+        Map<String, Integer> offsets = new HashMap<>();
+        long maxVersion = 0;
+        while (buffer.get() != 0) {
+            String key = ReplicationCodec.readString(buffer);
+            int offset = buffer.position();
+            int versionOffset = offset + Integer.BYTES + Math.max(buffer.getInt(), 0);
+            maxVersion = Math.max(maxVersion, buffer.getLong(versionOffset));
+            buffer.position(versionOffset + 2 * Long.BYTES);
+            offsets.put(key, offset);
+        }
+        return new MappedSnapshot(buffer, offsets, maxVersion);
+    }
+
+    public Entry get(String key) {
+        Integer offset = offsets.get(key);
+        if (offset == null)
+            return null;
+
+        int position = offset;
+        int length = buffer.getInt(position);
+        position += Integer.BYTES;
+        String value = null;
+        if (length >= 0) {
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            position += length;
+        }
+        return new Entry(value, buffer.getLong(position));
+    }
+
+    public long version(String key) {
+        int offset = offsets.get(key);
+        return buffer.getLong(offset + Integer.BYTES + Math.max(buffer.getInt(offset), 0));
+    }
+
+    public boolean containsKey(String key) {
+        return offsets.containsKey(key);
+    }
+
+    public void forEachKey(Consumer<String> action) {
+        offsets.keySet().forEach(action);
+    }
+
+    public long maxVersion() {
+        return maxVersion;
+    }
+
+    public int size() {
+        return offsets.size();
+    }
+}
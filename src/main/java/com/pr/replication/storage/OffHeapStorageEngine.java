@@ -0,0 +1,227 @@
+package com.pr.replication.storage;
+
+import com.pr.replication.model.Entry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps values in direct {@link ByteBuffer} slabs outside the Java heap; the heap only holds the key
+ * and a block address ({@code slab << 32 | offset}).
+ * <p>
+ * Blocks are {@code [long version][int length][utf-8 bytes]}, carved from fixed-size slabs in
+ * power-of-two size classes and recycled through per-class free lists. Values larger than a slab get
+ * a dedicated buffer. Replaced blocks are parked until a reclaim pass holding the write side of the
+ * {@link StampedLock} hands them back to the free lists, so an optimistic reader only has to validate
+ * its stamp to know the block it copied was not reused underneath it.
+ */
+public class OffHeapStorageEngine implements StorageEngine {
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int MIN_SHIFT = 4;
+    private static final int RECLAIM_THRESHOLD = 4096;
+
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final StampedLock lock = new StampedLock();
+    private final List<Queue<Long>> freeLists = new ArrayList<>();
+    private final Queue<Long> retired = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retiredCount = new AtomicInteger();
+    private final AtomicBoolean reclaiming = new AtomicBoolean();
+    private final int slabBytes;
+    private final int maxShift;
+
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    private int currentSlab = -1;
+    private int cursor;
+
+    public OffHeapStorageEngine(int slabBytes) {
+        if (Integer.bitCount(slabBytes) != 1 || slabBytes < 1 << MIN_SHIFT)
+            throw new IllegalArgumentException("Slab size must be a power of two of at least " + (1 << MIN_SHIFT) + " bytes");
+        this.slabBytes = slabBytes;
+        this.maxShift = Integer.numberOfTrailingZeros(slabBytes);
+        for (int shift = 0; shift <= maxShift; shift++)
+            freeLists.add(new ConcurrentLinkedQueue<>());
+    }
+
+    @Override
+    public Entry get(String key) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Long address = index.get(key);
+            if (address == null)
+                return null;
+            Entry entry = tryRead(address, stamp);
+            if (entry != null)
+                return entry;
+        }
+
+        stamp = lock.readLock();
+        try {
+            Long address = index.get(key);
+            return address == null ? null : read(address);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Entry compute(String key, BiFunction<String, Entry, Entry> remapping) {
+        List<Entry> result = new ArrayList<>(1);
+        long stamp = lock.readLock();
+        try {
+            index.compute(key, (k, address) -> {
+                Entry current = address == null ? null : read(address);
+                Entry next = remapping.apply(k, current);
+                result.add(next);
+                if (next == current)
+                    return address;
+                if (address != null)
+                    retire(address);
+                return next == null ? null : allocate(next);
+            });
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        reclaimIfNeeded();
+        return result.getFirst();
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Entry> action) {
+        index.forEach((key, ignored) -> {
+            Entry entry = get(key);
+            if (entry != null)
+                action.accept(key, entry);
+        });
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    private Entry tryRead(long address, long stamp) {
+        ByteBuffer slab = slabs[slabIndex(address)];
+        if (slab == null)
+            return null;
+        int offset = offset(address);
+        long version = slab.getLong(offset);
+        int length = slab.getInt(offset + Long.BYTES);
+        if (!lock.validate(stamp))
+            return null;
+        String value = length < 0 ? null : decode(slab, offset, length);
+        return lock.validate(stamp) ? new Entry(value, version) : null;
+    }
+
+    private Entry read(long address) {
+        ByteBuffer slab = slabs[slabIndex(address)];
+        int offset = offset(address);
+        int length = slab.getInt(offset + Long.BYTES);
+        String value = length < 0 ? null : decode(slab, offset, length);
+        return new Entry(value, slab.getLong(offset));
+    }
+
+    private static String decode(ByteBuffer slab, int offset, int length) {
+        byte[] bytes = new byte[length];
+        slab.get(offset + HEADER_BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long allocate(Entry entry) {
+        byte[] bytes = entry.value() == null ? null : entry.value().getBytes(StandardCharsets.UTF_8);
+        int length = bytes == null ? -1 : bytes.length;
+        int shift = shiftFor(HEADER_BYTES + Math.max(length, 0));
+
+        long address;
+        if (shift > maxShift) {
+            address = (long) addSlab(ByteBuffer.allocateDirect(HEADER_BYTES + length)) << 32;
+        } else {
+            Long free = freeLists.get(shift).poll();
+            address = free != null ? free : carve(1 << shift);
+        }
+
+        ByteBuffer slab = slabs[slabIndex(address)];
+        int offset = offset(address);
+        slab.putLong(offset, entry.version());
+        slab.putInt(offset + Long.BYTES, length);
+        if (bytes != null)
+            slab.put(offset + HEADER_BYTES, bytes);
+        return address;
+    }
+
+    private void retire(long address) {
+        retired.add(address);
+        retiredCount.incrementAndGet();
+    }
+
+    private void reclaimIfNeeded() {
+        if (retiredCount.get() < RECLAIM_THRESHOLD || !reclaiming.compareAndSet(false, true))
+            return;
+        long stamp = lock.writeLock();
+        try {
+            Long address;
+            while ((address = retired.poll()) != null) {
+                retiredCount.decrementAndGet();
+                release(address);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+            reclaiming.set(false);
+        }
+    }
+
+    private void release(long address) {
+        int length = slabs[slabIndex(address)].getInt(offset(address) + Long.BYTES);
+        int shift = shiftFor(HEADER_BYTES + Math.max(length, 0));
+        if (shift > maxShift)
+            dropSlab(slabIndex(address));
+        else
+            freeLists.get(shift).add(address);
+    }
+
+    private synchronized long carve(int size) {
+        if (currentSlab < 0 || cursor + size > slabBytes) {
+            currentSlab = addSlab(ByteBuffer.allocateDirect(slabBytes));
+            cursor = 0;
+        }
+        long address = (long) currentSlab << 32 | cursor;
+        cursor += size;
+        return address;
+    }
+
+    private synchronized int addSlab(ByteBuffer slab) {
+        ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+        grown[slabs.length] = slab;
+        slabs = grown;
+        return slabs.length - 1;
+    }
+
+    private synchronized void dropSlab(int slabIndex) {
+        ByteBuffer[] copy = slabs.clone();
+        copy[slabIndex] = null;
+        slabs = copy;
+    }
+
+    private static int shiftFor(int size) {
+        return Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    private static int slabIndex(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+}
@@ -0,0 +1,126 @@
+package com.pr.replication.storage;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot files live next to the write-ahead log as {@code snapshot-<segment>.bin}, where
+ * {@code <segment>} is the first log segment not covered by the snapshot. A file is
+ * {@code [int magic][int version][long appliedSeq]} followed by the body written by the caller.
+ */
+@Log4j2
+@Component
+public class SnapshotStore {
+
+    @FunctionalInterface
+    public interface BodyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface MappedBodyReader {
+        void read(long appliedSeq, ByteBuffer body) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface StreamBodyReader {
+        void read(long appliedSeq, DataInputStream in) throws IOException;
+    }
+
+    private static final int MAGIC = 0x534E4150;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    @Value("${replication.wal.dir:data}")
+    private Path dir;
+
+    public void write(long segment, long appliedSeq, BodyWriter body) throws IOException {
+        Files.createDirectories(dir);
+        Path target = dir.resolve(name(segment));
+        Path temp = dir.resolve(name(segment) + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 256 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(appliedSeq);
+            body.write(out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (Path older : snapshots()) {
+            if (segment(older) < segment)
+                Files.deleteIfExists(older);
+        }
+    }
+
+    public long loadLatest(MappedBodyReader mapped, StreamBodyReader streamed) throws IOException {
+        if (!Files.isDirectory(dir))
+            return 0;
+        List<Path> snapshots = snapshots();
+        if (snapshots.isEmpty())
+            return 0;
+
+        Path latest = snapshots.getLast();
+        long started = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ)) {
+            if (channel.size() <= Integer.MAX_VALUE) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                checkHeader(latest, buffer.getInt(), buffer.getInt());
+                mapped.read(buffer.getLong(), buffer.slice(HEADER_BYTES, buffer.limit() - HEADER_BYTES));
+            } else {
+                log.info("Snapshot {} is larger than 2 GiB, loading it without mmap", latest);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 256 * 1024));
+                checkHeader(latest, in.readInt(), in.readInt());
+                streamed.read(in.readLong(), in);
+            }
+        }
+        log.info("Loaded snapshot {} in {} ms", latest, System.currentTimeMillis() - started);
+        return segment(latest);
+    }
+
+    private static void checkHeader(Path snapshot, int magic, int version) throws IOException {
+        if (magic != MAGIC || version != VERSION)
+            throw new IOException("Unsupported snapshot file " + snapshot);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(PREFIX)
+                            && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String name(long segment) {
+        return String.format("%s%020d%s", PREFIX, segment, SUFFIX);
+    }
+
+    private static long segment(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
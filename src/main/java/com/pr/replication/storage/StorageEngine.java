@@ -0,0 +1,30 @@
+package com.pr.replication.storage;
+
+import com.pr.replication.model.Entry;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Key-value store behind {@code StorageService}. {@link #compute} must run the remapping function
+ * atomically per key, with the same contract as {@link java.util.concurrent.ConcurrentHashMap#compute}.
+ */
+public interface StorageEngine {
+
+    Entry get(String key);
+
+    Entry compute(String key, BiFunction<String, Entry, Entry> remapping);
+
+    default Entry computeIfAbsent(String key, Function<String, Entry> mapping) {
+        return compute(key, (k, current) -> current != null ? current : mapping.apply(k));
+    }
+
+    default void put(String key, Entry value) {
+        compute(key, (k, current) -> value);
+    }
+
+    void forEach(BiConsumer<String, Entry> action);
+
+    int size();
+}
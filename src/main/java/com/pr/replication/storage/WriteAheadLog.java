@@ -0,0 +1,370 @@
+package com.pr.replication.storage;
+
+import com.pr.replication.codec.ReplicationCodec;
+import com.pr.replication.model.ReplicationRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented log of every mutation applied to the store.
+ * <p>
+ * Records are {@code [int length][int crc32c][byte type][entry]} using the {@link ReplicationCodec}
+ * entry encoding. Appends are group-committed by a single writer thread: everything queued since the
+ * previous write goes out in one {@code write} (and one {@code fsync} under {@link FsyncPolicy#ALWAYS}).
+ */
+@Log4j2
+@Component
+public class WriteAheadLog {
+
+    public enum FsyncPolicy {
+        ALWAYS,
+        INTERVAL,
+        OS
+    }
+
+    public enum RecordType {
+        WRITE,
+        REPLICATE
+    }
+
+    public record Record(RecordType type, ReplicationRequest entry) {
+    }
+
+    private record Pending(Record record, CompletableFuture<Void> future) {
+    }
+
+    private record Replayed(long records, boolean intact) {
+    }
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 2 * ReplicationCodec.MAX_STRING_BYTES + 64;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong appended = new AtomicLong();
+
+    @Value("${replication.wal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${replication.wal.dir:data}")
+    private Path dir;
+
+    @Value("${replication.wal.fsync:always}")
+    private FsyncPolicy fsync;
+
+    @Value("${replication.wal.fsync-interval-ms:10}")
+    private long fsyncIntervalMs;
+
+    @Value("${replication.wal.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    @Value("${replication.wal.max-group:1024}")
+    private int maxGroup;
+
+    private FileChannel channel;
+    private long segmentId;
+    private long segmentSize;
+    private boolean unsynced;
+    private long lastSync;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile IOException broken;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void recover(long fromSegment, Consumer<Record> consumer) throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(dir);
+        truncateBefore(fromSegment);
+
+        List<Path> segments = segments();
+        long replayed = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Replayed result = replay(segments.get(i), consumer, i == segments.size() - 1);
+            replayed += result.records();
+            if (!result.intact()) {
+                quarantine(segments.subList(i + 1, segments.size()));
+                segments = segments.subList(0, i + 1);
+                break;
+            }
+        }
+
+        if (segments.isEmpty())
+            openSegment(Math.max(1, fromSegment));
+        else
+            openSegment(segmentId(segments.getLast()));
+
+        running = true;
+        writer = Thread.ofPlatform()
+                .name("WriteAheadLog")
+                .daemon(true)
+                .start(this::writeLoop);
+        log.info("Write-ahead log recovered {} records from {} segments in {} (fsync={})",
+                replayed, segments.size(), dir.toAbsolutePath(), fsync);
+    }
+
+    public CompletableFuture<Void> append(RecordType type, ReplicationRequest entry) {
+        if (!enabled) return DONE;
+        if (broken != null) return CompletableFuture.failedFuture(broken);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        queue.add(new Pending(new Record(type, entry), future));
+        appended.incrementAndGet();
+        return future;
+    }
+
+    public long appendedCount() {
+        return appended.get();
+    }
+
+    public synchronized long roll() throws IOException {
+        openSegment(segmentId + 1);
+        return segmentId;
+    }
+
+    public void truncateBefore(long segment) throws IOException {
+        for (Path path : segments()) {
+            if (segmentId(path) < segment)
+                Files.deleteIfExists(path);
+        }
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        if (!running) return;
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void writeLoop() {
+        List<Pending> group = new ArrayList<>(maxGroup);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(fsyncIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    group.add(first);
+                    queue.drainTo(group, maxGroup - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                synchronized (this) {
+                    if (broken != null)
+                        throw broken;
+                    if (!group.isEmpty())
+                        writeGroup(group, buffer);
+                    if (fsync == FsyncPolicy.INTERVAL && unsynced
+                            && System.currentTimeMillis() - lastSync >= fsyncIntervalMs)
+                        sync();
+                }
+                group.forEach(p -> p.future().complete(null));
+            } catch (IOException e) {
+                log.error("Write-ahead log append of {} records failed", group.size(), e);
+                group.forEach(p -> p.future().completeExceptionally(e));
+            }
+            group.clear();
+        }
+
+        try {
+            synchronized (this) {
+                sync();
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close write-ahead log: {}", e.getMessage());
+        }
+    }
+
+    private void writeGroup(List<Pending> group, ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        DataOutputStream out = new DataOutputStream(buffer);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+        DataOutputStream payloadOut = new DataOutputStream(payload);
+        CRC32C crc = new CRC32C();
+
+        for (Pending pending : group) {
+            payload.reset();
+            payloadOut.writeByte(pending.record().type().ordinal());
+            ReplicationCodec.writeRequest(payloadOut, pending.record().entry());
+
+            crc.reset();
+            crc.update(payload.toByteArray());
+            out.writeInt(payload.size());
+            out.writeInt((int) crc.getValue());
+            payload.writeTo(out);
+        }
+
+        long start = segmentSize;
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            segmentSize += buffer.size();
+            unsynced = true;
+
+            if (fsync == FsyncPolicy.ALWAYS)
+                sync();
+        } catch (IOException e) {
+            discardFrom(start, e);
+            throw e;
+        }
+        if (segmentSize >= segmentBytes)
+            openSegment(segmentId + 1);
+    }
+
+    // A failed group may have left a partial record behind. Later appends must not land after it, or
+    // replay would stop there and lose them, so cut the segment back to where the group started. If
+    // even that fails the log stops accepting appends.
+    private void discardFrom(long start, IOException cause) {
+        try {
+            channel.truncate(start);
+            segmentSize = start;
+            unsynced = false;
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            broken = cause;
+            log.error("Could not truncate write-ahead log segment {} back to {}, rejecting further appends",
+                    segmentName(segmentId), start, e);
+        }
+    }
+
+    private void sync() throws IOException {
+        if (unsynced && fsync != FsyncPolicy.OS)
+            channel.force(false);
+        unsynced = false;
+        lastSync = System.currentTimeMillis();
+    }
+
+    private void openSegment(long id) throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+        }
+        Path path = dir.resolve(segmentName(id));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentId = id;
+        segmentSize = channel.size();
+    }
+
+    // Replay stops at the first record that does not read back intact and cuts the segment there. In
+    // the last segment that is an ordinary torn tail; anywhere else the records after it can no
+    // longer be applied in order, so the caller sets the following segments aside.
+    private Replayed replay(Path segment, Consumer<Record> consumer, boolean last) throws IOException {
+        long size = Files.size(segment);
+        long position = 0;
+        long count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 64 * 1024))) {
+            while (true) {
+                byte[] payload;
+                Record record;
+                try {
+                    payload = readPayload(in, size - position);
+                    if (payload == null)
+                        return new Replayed(count, true);
+                    record = decode(payload);
+                } catch (IOException | RuntimeException e) {
+                    if (last)
+                        log.warn("Truncating torn tail of {} at offset {}: {}", segment, position, e.toString());
+                    else
+                        log.error("Corrupt record in {} at offset {}, recovery stops here: {}", segment, position,
+                                e.toString());
+                    try (FileChannel truncate = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                        truncate.truncate(position);
+                    }
+                    return new Replayed(count, false);
+                }
+                consumer.accept(record);
+                position += HEADER_BYTES + payload.length;
+                count++;
+            }
+        }
+    }
+
+    private static void quarantine(List<Path> segments) throws IOException {
+        for (Path segment : segments) {
+            Path target = segment.resolveSibling(segment.getFileName() + CORRUPT_SUFFIX);
+            Files.move(segment, target, StandardCopyOption.REPLACE_EXISTING);
+            log.error("Moved unreplayable write-ahead log segment {} aside to {}", segment, target);
+        }
+    }
+
+    private static byte[] readPayload(DataInputStream in, long remaining) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        int checksum = in.readInt();
+        if (length < 0 || length > MAX_RECORD_BYTES || length > remaining - HEADER_BYTES)
+            throw new IOException("invalid record length " + length + " with " + remaining + " bytes left");
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum)
+            throw new IOException("checksum mismatch");
+        return payload;
+    }
+
+    private static Record decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        RecordType type = RecordType.values()[in.readUnsignedByte()];
+        return new Record(type, ReplicationCodec.readRequest(in));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String segmentName(long id) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+    }
+
+    private static long segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,222 @@
+package com.pr.replication.stream;
+
+import com.pr.replication.model.ReplicationRequest;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Log4j2
+public class ReplicationStreamClient {
+
+    private static final int MAX_FRAMES_PER_FLUSH = 256;
+    private static final int ACK_BYTES = Long.BYTES + 1;
+
+    private record Frame(long seq, ReplicationRequest request, CompletableFuture<Boolean> future) {
+    }
+
+    private record InFlight(CompletableFuture<Boolean> future, long sentNanos) {
+    }
+
+    private final String host;
+    private final int port;
+    private final int connectTimeoutMs;
+    private final long readTimeoutNanos;
+    private final long reconnectBackoffMs;
+    private final BlockingQueue<Frame> queue;
+    private final Thread writer;
+
+    private volatile boolean running = true;
+    private long nextSeq = 1;
+    private long reconnectAt;
+    private Connection connection;
+
+    /**
+     * @param readTimeoutMs how long a frame may wait for its ack before the connection is considered
+     *                      stuck and is dropped, failing everything in flight
+     */
+    public ReplicationStreamClient(String host, int port, int connectTimeoutMs, int readTimeoutMs,
+                                   long reconnectBackoffMs, int capacity) {
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMs);
+        this.reconnectBackoffMs = reconnectBackoffMs;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.writer = Thread.ofPlatform()
+                .name("ReplicationStream-" + host + ":" + port)
+                .daemon(true)
+                .start(this::writeLoop);
+    }
+
+    public CompletableFuture<Boolean> send(ReplicationRequest request) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (!queue.offer(new Frame(0, request, future))) {
+            log.warn("Replication stream to {}:{} is backed up, rejecting {}", host, port, request.key());
+            future.complete(false);
+        }
+        return future;
+    }
+
+    public void close() {
+        running = false;
+        writer.interrupt();
+        Connection current = connection;
+        if (current != null) current.close(null);
+        List<Frame> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(f -> f.future().complete(false));
+    }
+
+    private void writeLoop() {
+        List<Frame> frames = new ArrayList<>(MAX_FRAMES_PER_FLUSH);
+        while (running) {
+            try {
+                frames.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(frames, MAX_FRAMES_PER_FLUSH - 1);
+
+            Connection current = connect();
+            if (current == null) {
+                frames.forEach(f -> f.future().complete(false));
+            } else {
+                current.write(frames);
+            }
+            frames.clear();
+        }
+    }
+
+    private Connection connect() {
+        if (connection != null && !connection.closed.get())
+            return connection;
+        if (System.currentTimeMillis() < reconnectAt)
+            return null;
+
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            socket.setSoTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(readTimeoutNanos) / 2));
+            connection = new Connection(socket);
+            log.info("Replication stream connected to {}:{}", host, port);
+            return connection;
+        } catch (IOException e) {
+            log.warn("Replication stream to {}:{} unavailable: {}", host, port, e.getMessage());
+            closeQuietly(socket);
+            reconnectAt = System.currentTimeMillis() + reconnectBackoffMs;
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private class Connection {
+
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private final NavigableMap<Long, InFlight> pending = new ConcurrentSkipListMap<>();
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 16 * 1024));
+            StreamProtocol.writeHandshake(out);
+            Thread.ofPlatform()
+                    .name("ReplicationStreamAcks-" + host + ":" + port)
+                    .daemon(true)
+                    .start(this::readAcks);
+        }
+
+        void write(List<Frame> frames) {
+            try {
+                for (Frame frame : frames) {
+                    long seq = nextSeq++;
+                    pending.put(seq, new InFlight(frame.future(), System.nanoTime()));
+                    StreamProtocol.writeFrame(out, seq, frame.request());
+                }
+                out.flush();
+            } catch (IOException e) {
+                close(e);
+            }
+            if (closed.get())
+                failPending();
+        }
+
+        // The socket timeout only wakes this loop up; a connection is dropped once its oldest
+        // unacknowledged frame is older than the read timeout, whether or not other acks still arrive.
+        // Acks are read into a buffer that survives a timeout, so a wake-up in the middle of one never
+        // loses the bytes already received.
+        private void readAcks() {
+            byte[] ack = new byte[ACK_BYTES];
+            int filled = 0;
+            try {
+                while (!closed.get()) {
+                    try {
+                        int read = in.read(ack, filled, ack.length - filled);
+                        if (read < 0)
+                            throw new EOFException("stream closed by follower");
+                        filled += read;
+                        if (filled == ack.length) {
+                            filled = 0;
+                            InFlight inFlight = pending.remove(ByteBuffer.wrap(ack).getLong());
+                            if (inFlight != null)
+                                inFlight.future().complete(ack[Long.BYTES] == StreamProtocol.ACK);
+                        }
+                    } catch (SocketTimeoutException e) {
+                        // no acks for a while, fall through to the deadline check
+                    }
+                    Map.Entry<Long, InFlight> oldest = pending.firstEntry();
+                    if (oldest != null && System.nanoTime() - oldest.getValue().sentNanos() > readTimeoutNanos)
+                        throw new SocketTimeoutException("no ack for seq " + oldest.getKey() + " within "
+                                + TimeUnit.NANOSECONDS.toMillis(readTimeoutNanos) + " ms");
+                }
+            } catch (IOException e) {
+                close(e);
+            }
+        }
+
+        void close(IOException cause) {
+            if (!closed.compareAndSet(false, true))
+                return;
+            if (cause != null && running)
+                log.warn("Replication stream to {}:{} lost: {}", host, port, cause.getMessage());
+            closeQuietly(socket);
+            failPending();
+        }
+
+        private void failPending() {
+            pending.keySet().forEach(seq -> {
+                InFlight inFlight = pending.remove(seq);
+                if (inFlight != null) inFlight.future().complete(false);
+            });
+        }
+    }
+}
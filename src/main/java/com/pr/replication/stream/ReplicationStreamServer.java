@@ -0,0 +1,120 @@
+package com.pr.replication.stream;
+
+import com.pr.replication.codec.ReplicationCodec;
+import com.pr.replication.model.ReplicationRequest;
+import com.pr.replication.service.StorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Log4j2
+@Component
+@Profile("follower")
+@ConditionalOnProperty(name = "replication.stream.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReplicationStreamServer {
+
+    private static final int MAX_FRAMES_PER_FLUSH = 256;
+
+    private final StorageService storageService;
+
+    @Value("${replication.stream.port:9090}")
+    private int port;
+
+    private ServerSocket serverSocket;
+
+    @PostConstruct
+    void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        Thread.ofPlatform()
+                .name("ReplicationStreamAcceptor")
+                .daemon(true)
+                .start(this::acceptLoop);
+        log.info("Replication stream listening on port {}", port);
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual()
+                        .name("ReplicationStream-" + socket.getRemoteSocketAddress())
+                        .start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed())
+                    log.warn("Failed to accept replication stream: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 16 * 1024));
+            StreamProtocol.readHandshake(in);
+            log.info("Replication stream opened from {}", socket.getRemoteSocketAddress());
+
+            List<Long> seqs = new ArrayList<>(MAX_FRAMES_PER_FLUSH);
+            List<CompletableFuture<Void>> applied = new ArrayList<>(MAX_FRAMES_PER_FLUSH);
+            while (true) {
+                do {
+                    seqs.add(in.readLong());
+                    applied.add(apply(ReplicationCodec.readRequest(in)));
+                } while (in.available() > 0 && seqs.size() < MAX_FRAMES_PER_FLUSH);
+
+                for (int i = 0; i < seqs.size(); i++) {
+                    out.writeLong(seqs.get(i));
+                    out.writeByte(await(applied.get(i)) ? StreamProtocol.ACK : StreamProtocol.NACK);
+                }
+                out.flush();
+                seqs.clear();
+                applied.clear();
+            }
+        } catch (EOFException e) {
+            log.info("Replication stream from {} closed", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            log.warn("Replication stream from {} failed: {}", socket.getRemoteSocketAddress(), e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Void> apply(ReplicationRequest request) {
+        try {
+            return storageService.replicate(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean await(CompletableFuture<Void> applied) {
+        try {
+            applied.join();
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply streamed replication: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.pr.replication.stream;
+
+import com.pr.replication.codec.ReplicationCodec;
+import com.pr.replication.model.ReplicationRequest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Framing for the persistent replication stream.
+ * <p>
+ * The leader opens the stream with {@link #MAGIC} and {@link #VERSION}, then writes
+ * {@code [long seq][entry]} frames using the {@link ReplicationCodec} entry encoding. The
+ * follower answers every frame, in order, with {@code [long seq][byte status]}.
+ */
+final class StreamProtocol {
+
+    static final int MAGIC = 0x5245504C;
+    static final int VERSION = 1;
+
+    static final byte ACK = 1;
+    static final byte NACK = 0;
+
+    private StreamProtocol() {
+    }
+
+    static void writeHandshake(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.flush();
+    }
+
+    static void readHandshake(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != MAGIC || version != VERSION)
+            throw new IOException("Unsupported replication stream " + Integer.toHexString(magic) + "/" + version);
+    }
+
+    static void writeFrame(DataOutputStream out, long seq, ReplicationRequest request) throws IOException {
+        out.writeLong(seq);
+        ReplicationCodec.writeRequest(out, request);
+    }
+}
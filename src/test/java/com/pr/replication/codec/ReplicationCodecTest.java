@@ -0,0 +1,94 @@
+package com.pr.replication.codec;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicationCodecTest {
+
+    @Test
+    void givenRequest_whenEncodedAndDecoded_thenRoundTrips() throws IOException {
+        ReplicationRequest request = new ReplicationRequest("käy", "välue", 1764590400123456789L, 42);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReplicationCodec.writeRequest(new DataOutputStream(bytes), request);
+        ReplicationRequest decoded = ReplicationCodec.readRequest(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(decoded).isEqualTo(request);
+    }
+
+    @Test
+    void givenBatch_whenEncodedAndDecoded_thenPreservesOrderAndNullValues() throws IOException {
+        ReplicationBatch batch = new ReplicationBatch(List.of(
+                new ReplicationRequest("a", "1", 1_000_000_005L, 1),
+                new ReplicationRequest("b", null, 2_000_000_000L, 2),
+                new ReplicationRequest("c", "", 0, 0)
+        ), List.of(3L, 5L), true);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReplicationCodec.writeBatch(new DataOutputStream(bytes), batch);
+        ReplicationBatch decoded = ReplicationCodec.readBatch(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(decoded.entries()).containsExactlyElementsOf(batch.entries());
+        assertThat(decoded.supersededSeqs()).containsExactly(3L, 5L);
+        assertThat(decoded.repair()).isTrue();
+    }
+
+    @Test
+    void givenSnapshotBody_whenReadFromBuffer_thenMatchesStreamEncoding() throws IOException {
+        List<ReplicationRequest> entries = List.of(
+                new ReplicationRequest("a", "1", 1_000_000_005L, 0),
+                new ReplicationRequest("b", null, 2_000_000_000L, 0)
+        );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ReplicationCodec.writeSnapshotHeader(out, 7);
+        for (ReplicationRequest entry : entries)
+            ReplicationCodec.writeSnapshotEntry(out, entry);
+        ReplicationCodec.writeSnapshotEnd(out);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        assertThat(buffer.getLong()).isEqualTo(7);
+        assertThat(ReplicationCodec.readSnapshotEntry(buffer)).isEqualTo(entries.get(0));
+        assertThat(ReplicationCodec.readSnapshotEntry(buffer)).isEqualTo(entries.get(1));
+        assertThat(ReplicationCodec.readSnapshotEntry(buffer)).isNull();
+    }
+
+    @Test
+    void givenHostileLengths_whenDecoded_thenFailsWithoutAllocatingThem() throws IOException {
+        ByteArrayOutputStream huge = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(huge);
+        out.writeInt(Integer.MAX_VALUE);
+        out.writeInt(ReplicationCodec.MAX_STRING_BYTES);
+        out.write(new byte[16]);
+        byte[] lyingBatch = huge.toByteArray();
+
+        ByteBuffer negative = ByteBuffer.allocate(8).putInt(-2).putInt(0).flip();
+        ByteBuffer overrun = ByteBuffer.allocate(8).putInt(100).putInt(0).flip();
+
+        assertThatThrownBy(() -> ReplicationCodec.readBatch(
+                new DataInputStream(new ByteArrayInputStream(lyingBatch)))).isInstanceOf(EOFException.class);
+        assertThatThrownBy(() -> ReplicationCodec.readRequest(
+                new DataInputStream(new ByteArrayInputStream(new byte[]{(byte) 0x80, 0, 0, 0}))))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Invalid string length");
+        assertThatThrownBy(() -> ReplicationCodec.readString(negative)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ReplicationCodec.readString(overrun)).isInstanceOf(BufferUnderflowException.class);
+    }
+}
@@ -0,0 +1,42 @@
+package com.pr.replication.controller;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import com.pr.replication.service.HybridLogicalClock;
+import com.pr.replication.service.ReplicationLog;
+import com.pr.replication.service.SenderService;
+import com.pr.replication.service.StorageService;
+import com.pr.replication.storage.HeapStorageEngine;
+import com.pr.replication.storage.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class FollowerControllerTest {
+
+    private final StorageService storageService = new StorageService(new HeapStorageEngine(),
+            mock(SenderService.class), new ReplicationLog(), new WriteAheadLog(), null, new HybridLogicalClock());
+    private final FollowerController controller = new FollowerController(storageService);
+
+    @Test
+    void givenVersioningOff_whenLiveBatchIsOlder_thenItOverwrites() {
+        controller.replicate(new ReplicationRequest("a", "new", 20, 0)).join();
+
+        controller.replicateBatch(new ReplicationBatch(List.of(new ReplicationRequest("a", "old", 10, 0)))).join();
+
+        assertThat(storageService.get("a")).isEqualTo("old");
+    }
+
+    @Test
+    void givenVersioningOff_whenRepairBatchIsOlder_thenNewerValueIsKept() {
+        controller.replicate(new ReplicationRequest("a", "new", 20, 0)).join();
+
+        controller.replicateBatch(new ReplicationBatch(
+                List.of(new ReplicationRequest("a", "old", 10, 0)), List.of(), true)).join();
+
+        assertThat(storageService.get("a")).isEqualTo("new");
+    }
+}
@@ -0,0 +1,45 @@
+package com.pr.replication.controller;
+
+import com.pr.replication.model.QuorumResult;
+import com.pr.replication.service.StorageService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LeaderControllerTest {
+
+    private final StorageService storageService = mock(StorageService.class);
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new LeaderController(storageService)).build();
+
+    @Test
+    void givenPendingQuorum_whenWritten_thenRequestCompletesAsynchronouslyOnceQuorumIsReached() throws Exception {
+        CompletableFuture<QuorumResult> quorum = new CompletableFuture<>();
+        when(storageService.write("k", "v")).thenReturn(quorum);
+
+        MvcResult started = mvc.perform(post("/write")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"key\":\"k\",\"value\":\"v\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        quorum.complete(new QuorumResult(2, 1, true));
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.acks").value(2))
+                .andExpect(jsonPath("$.nacks").value(1))
+                .andExpect(jsonPath("$.reached").value(true));
+    }
+}
@@ -0,0 +1,53 @@
+package com.pr.replication.service;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FollowerQueueTest {
+
+    @Test
+    void givenQueuedUpdatesToSameKey_whenShipped_thenOnlyNewestIsSentAndAllFuturesComplete() throws Exception {
+        CountDownLatch firstShipped = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<ReplicationBatch> shipped = new CopyOnWriteArrayList<>();
+        FollowerQueue queue = new FollowerQueue("test", 64, 0, 100, batch -> {
+            shipped.add(batch);
+            firstShipped.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture(true);
+        });
+
+        try {
+            CompletableFuture<Boolean> blocker = queue.enqueue(new ReplicationRequest("x", "0", 1, 1));
+            assertThat(firstShipped.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CompletableFuture<Boolean> first = queue.enqueue(new ReplicationRequest("k", "1", 10, 2));
+            CompletableFuture<Boolean> late = queue.enqueue(new ReplicationRequest("k", "3", 12, 4));
+            CompletableFuture<Boolean> reordered = queue.enqueue(new ReplicationRequest("k", "2", 11, 3));
+            release.countDown();
+
+            assertThat(blocker.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(late.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(reordered.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(shipped).hasSize(2);
+            assertThat(shipped.get(1)).isEqualTo(new ReplicationBatch(
+                    List.of(new ReplicationRequest("k", "3", 12, 4)), List.of(2L, 3L)));
+        } finally {
+            queue.stop();
+        }
+    }
+}
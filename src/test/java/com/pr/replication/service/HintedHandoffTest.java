@@ -0,0 +1,65 @@
+package com.pr.replication.service;
+
+import com.pr.replication.model.ReplicationBatch;
+import com.pr.replication.model.ReplicationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HintedHandoffTest {
+
+    @Test
+    void givenSupersededAndObsoleteHints_whenRedelivered_thenTheirSeqsAreReported() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        LinkedBlockingQueue<ReplicationBatch> shipped = new LinkedBlockingQueue<>();
+        try {
+            HintedHandoff handoff = new HintedHandoff("test", 100, 10, 50, 50, batch -> {
+                shipped.add(batch);
+                return CompletableFuture.completedFuture(true);
+            }, scheduler, new SimpleMeterRegistry());
+
+            handoff.failed(new ReplicationRequest("a", "1", 10, 1));
+            handoff.failed(new ReplicationRequest("a", "2", 11, 2));
+            handoff.failed(new ReplicationRequest("b", "1", 12, 3));
+            handoff.delivered(new ReplicationRequest("b", "2", 13, 4));
+
+            ReplicationBatch batch = shipped.poll(5, TimeUnit.SECONDS);
+            assertThat(batch).isNotNull();
+            assertThat(batch.entries()).containsExactly(new ReplicationRequest("a", "2", 11, 2));
+            assertThat(batch.supersededSeqs()).containsExactlyInAnyOrder(1L, 3L);
+            assertThat(shipped.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void givenFullHandoff_whenHintDropped_thenItsSeqIsStillReported() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        LinkedBlockingQueue<ReplicationBatch> shipped = new LinkedBlockingQueue<>();
+        try {
+            HintedHandoff handoff = new HintedHandoff("test", 1, 10, 50, 50, batch -> {
+                shipped.add(batch);
+                return CompletableFuture.completedFuture(true);
+            }, scheduler, new SimpleMeterRegistry());
+
+            handoff.failed(new ReplicationRequest("a", "1", 10, 1));
+            handoff.failed(new ReplicationRequest("b", "1", 11, 2));
+
+            ReplicationBatch batch = shipped.poll(5, TimeUnit.SECONDS);
+            assertThat(batch).isNotNull();
+            assertThat(batch.entries()).extracting(ReplicationRequest::key).isEqualTo(List.of("a"));
+            assertThat(batch.supersededSeqs()).containsExactly(2L);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.pr.replication.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HybridLogicalClockTest {
+
+    @Test
+    void givenSameMillisecondAndBackwardStep_whenTicking_thenVersionsStrictlyIncrease() {
+        AtomicLong wall = new AtomicLong(1_000);
+        HybridLogicalClock clock = new HybridLogicalClock(wall::get);
+
+        long first = clock.now();
+        long second = clock.now();
+        wall.set(900);
+        long third = clock.now();
+        wall.set(1_001);
+        long fourth = clock.now();
+
+        assertThat(first).isLessThan(second).isLessThan(third).isLessThan(fourth);
+        assertThat(HybridLogicalClock.physicalMillis(third)).isEqualTo(1_000);
+        assertThat(HybridLogicalClock.physicalMillis(fourth)).isEqualTo(1_001);
+    }
+
+    @Test
+    void givenObservedVersionAhead_whenTicking_thenNextVersionIsLarger() {
+        HybridLogicalClock clock = new HybridLogicalClock(() -> 1_000);
+        long remote = new HybridLogicalClock(() -> 5_000).now();
+
+        clock.observe(remote);
+
+        assertThat(clock.now()).isGreaterThan(remote);
+    }
+}
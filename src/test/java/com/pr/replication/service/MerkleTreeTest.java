@@ -0,0 +1,44 @@
+package com.pr.replication.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MerkleTreeTest {
+
+    @Test
+    void givenSameEntriesInDifferentOrder_whenBuilt_thenTreesMatch() {
+        MerkleTree first = new MerkleTree();
+        MerkleTree second = new MerkleTree();
+
+        first.update("a", -1, 1);
+        first.update("b", -1, 2);
+        first.update("a", 1, 3);
+        second.update("b", -1, 2);
+        second.update("a", -1, 3);
+
+        assertThat(first.nodes()).isEqualTo(second.nodes());
+    }
+
+    @Test
+    void givenOneStaleKey_whenComparing_thenOnlyItsLeafPathDiffers() {
+        MerkleTree leader = new MerkleTree();
+        MerkleTree follower = new MerkleTree();
+        for (int i = 0; i < 5000; i++) {
+            leader.update("key_" + i, -1, i);
+            follower.update("key_" + i, -1, i);
+        }
+        leader.update("key_42", 42, 9000);
+
+        long[] ours = leader.nodes();
+        long[] theirs = follower.nodes();
+        int leaf = MerkleTree.LEAVES + MerkleTree.leafOf("key_42");
+        int differing = 0;
+        for (int node = 1; node < ours.length; node++) {
+            if (ours[node] != theirs[node]) differing++;
+        }
+
+        assertThat(ours[leaf]).isNotEqualTo(theirs[leaf]);
+        assertThat(differing).isEqualTo(Integer.numberOfTrailingZeros(MerkleTree.LEAVES) + 1);
+    }
+}
@@ -0,0 +1,64 @@
+package com.pr.replication.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SequenceTrackerTest {
+
+    @Test
+    void givenOutOfOrderSeqs_whenHoleFills_thenContiguousCatchesUp() {
+        AtomicLong now = new AtomicLong(1_000);
+        SequenceTracker tracker = new SequenceTracker(now::get, 100);
+
+        tracker.applied(1);
+        tracker.applied(3);
+        tracker.applied(5);
+        now.addAndGet(500);
+
+        assertThat(tracker.contiguous()).isEqualTo(1);
+        assertThat(tracker.highest()).isEqualTo(5);
+        assertThat(tracker.missing()).isEqualTo(2);
+        assertThat(tracker.stalledNanos()).isEqualTo(500);
+
+        tracker.applied(2);
+        assertThat(tracker.contiguous()).isEqualTo(3);
+        assertThat(tracker.stalledNanos()).isZero();
+
+        tracker.applied(4);
+        assertThat(tracker.contiguous()).isEqualTo(5);
+        assertThat(tracker.missing()).isZero();
+        assertThat(tracker.stalledNanos()).isZero();
+    }
+
+    @Test
+    void givenPendingSeqs_whenAdvancedPastThem_thenDropsCoveredAndDrainsTheRest() {
+        SequenceTracker tracker = new SequenceTracker(() -> 0, 100);
+
+        tracker.applied(3);
+        tracker.applied(8);
+        tracker.applied(9);
+        tracker.advanceTo(7);
+
+        assertThat(tracker.contiguous()).isEqualTo(9);
+        assertThat(tracker.missing()).isZero();
+
+        tracker.applied(4);
+        assertThat(tracker.contiguous()).isEqualTo(9);
+    }
+
+    @Test
+    void givenTooManyPendingSeqs_whenAnotherArrives_thenOldestHoleIsSkipped() {
+        SequenceTracker tracker = new SequenceTracker(() -> 0, 2);
+
+        tracker.applied(3);
+        tracker.applied(4);
+        tracker.applied(6);
+
+        assertThat(tracker.contiguous()).isEqualTo(4);
+        assertThat(tracker.skipped()).isEqualTo(2);
+        assertThat(tracker.missing()).isEqualTo(1);
+    }
+}
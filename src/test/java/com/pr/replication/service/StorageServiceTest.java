@@ -0,0 +1,199 @@
+package com.pr.replication.service;
+
+import com.pr.replication.exception.WriteOperationFailedException;
+import com.pr.replication.model.Entry;
+import com.pr.replication.model.QuorumResult;
+import com.pr.replication.model.ReplicationRequest;
+import com.pr.replication.storage.HeapStorageEngine;
+import com.pr.replication.storage.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StorageServiceTest {
+
+    private final SenderService senderService = mock(SenderService.class);
+
+    @Test
+    void givenWritesBetweenPages_whenPagingThroughStore_thenEveryKeyAppearsExactlyOnce() {
+        StorageService storage = storageService();
+        for (int i = 0; i < 100; i++)
+            storage.write("key_" + i, "v").join();
+
+        List<String> seen = new ArrayList<>();
+        Set<String> writtenAhead = new HashSet<>();
+        String cursor = null;
+        int extra = 0;
+        while (true) {
+            List<Map.Entry<String, Entry>> page = storage.page(cursor, 7);
+            page.forEach(e -> seen.add(e.getKey()));
+            if (page.size() < 7)
+                break;
+            cursor = page.getLast().getKey();
+
+            storage.write("key_3", "overwritten").join();
+            String ahead;
+            do {
+                ahead = "extra_" + extra++;
+            } while (ahead.hashCode() <= cursor.hashCode());
+            storage.write(ahead, "v").join();
+            writtenAhead.add(ahead);
+        }
+
+        assertThat(seen).doesNotHaveDuplicates();
+        for (int i = 0; i < 100; i++)
+            assertThat(seen).contains("key_" + i);
+        assertThat(seen).containsAll(writtenAhead);
+    }
+
+    @Test
+    void givenVersionIndexDisabled_whenReadingChangesSince_thenScanMatchesTheIndex() {
+        StorageService indexed = storageService();
+        StorageService scanned = storageService();
+        ReflectionTestUtils.setField(indexed, "versionIndexEnabled", true);
+        ReflectionTestUtils.setField(scanned, "versionIndexEnabled", false);
+        for (StorageService storage : List.of(indexed, scanned)) {
+            for (int i = 0; i < 50; i++)
+                storage.replicate(new ReplicationRequest("key_" + i, "v", 1_000 + i, 0));
+            storage.replicate(new ReplicationRequest("key_7", "newer", 2_000, 0));
+        }
+
+        for (int limit : List.of(1, 10, Integer.MAX_VALUE)) {
+            List<Map.Entry<String, Entry>> fromIndex = new ArrayList<>();
+            List<Map.Entry<String, Entry>> fromScan = new ArrayList<>();
+            indexed.forEachChangedSince(1_020, limit, (key, entry) -> fromIndex.add(Map.entry(key, entry)));
+            scanned.forEachChangedSince(1_020, limit, (key, entry) -> fromScan.add(Map.entry(key, entry)));
+
+            assertThat(fromScan).isNotEmpty().containsExactlyElementsOf(fromIndex);
+        }
+    }
+
+    @Test
+    void givenFiveFollowersAndQuorumOfThree_whenTwoNacksPrecedeThreeAcks_thenWriteSucceeds() throws Exception {
+        List<CompletableFuture<Boolean>> acks = followerAcks(5);
+        StorageService storage = storageService();
+        storage.setQuorum(3);
+
+        CompletableFuture<QuorumResult> result = storage.write("k", "v");
+        acks.get(0).complete(false);
+        acks.get(1).complete(false);
+        acks.get(2).complete(true);
+        acks.get(3).complete(true);
+        assertThat(result).isNotDone();
+        acks.get(4).complete(true);
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(new QuorumResult(3, 2, true));
+    }
+
+    @Test
+    void givenQuorumOfThree_whenTooFewFollowersCanStillAck_thenWriteFailsWithoutWaitingForTheRest() {
+        List<CompletableFuture<Boolean>> acks = followerAcks(5);
+        StorageService storage = storageService();
+        storage.setQuorum(3);
+
+        CompletableFuture<QuorumResult> result = storage.write("k", "v");
+        acks.get(0).complete(true);
+        acks.get(1).complete(false);
+        acks.get(2).complete(false);
+        assertThat(result).isNotDone();
+        acks.get(3).complete(false);
+
+        assertThat(result).isCompletedExceptionally();
+        assertThatThrownBy(result::get)
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOf(WriteOperationFailedException.class)
+                .hasMessageContaining("acks=1, nacks=3");
+        assertThat(acks.get(4)).isNotDone();
+    }
+
+    @Test
+    void givenFewerFollowersThanQuorum_whenWritten_thenFailsImmediately() {
+        followerAcks(2);
+        StorageService storage = storageService();
+        storage.setQuorum(3);
+
+        assertThat(storage.write("k", "v")).isCompletedExceptionally();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenConcurrentWritesWithinWindow_whenGroupCommitted_thenOneGroupSettlesOnlyAtQuorum() throws Exception {
+        CompletableFuture<Boolean> ack = new CompletableFuture<>();
+        when(senderService.sendToAllFollowers(anyList(), anyInt(), any())).thenReturn(List.of(ack));
+        StorageService storage = storageService();
+        storage.setQuorum(1);
+        ReflectionTestUtils.setField(storage, "groupCommitEnabled", true);
+        ReflectionTestUtils.setField(storage, "groupCommitWindowMicros", 500_000L);
+        ReflectionTestUtils.setField(storage, "groupCommitMaxSize", 64);
+        ReflectionTestUtils.setField(storage, "groupCommitQueueCapacity", 100);
+        storage.init();
+
+        ExecutorService writers = Executors.newFixedThreadPool(3);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CompletableFuture<QuorumResult>>> submitted = new ArrayList<>();
+            for (String key : List.of("a", "b", "c")) {
+                submitted.add(writers.submit(() -> {
+                    start.await();
+                    return storage.write(key, "v");
+                }));
+            }
+            start.countDown();
+            List<CompletableFuture<QuorumResult>> results = new ArrayList<>();
+            for (Future<CompletableFuture<QuorumResult>> f : submitted)
+                results.add(f.get(5, TimeUnit.SECONDS));
+
+            ArgumentCaptor<List<ReplicationRequest>> group = ArgumentCaptor.forClass(List.class);
+            verify(senderService, timeout(5_000)).sendToAllFollowers(group.capture(), anyInt(), any());
+            assertThat(group.getValue()).extracting(ReplicationRequest::key).containsExactlyInAnyOrder("a", "b", "c");
+            assertThat(results).noneMatch(CompletableFuture::isDone);
+
+            ack.complete(true);
+            for (CompletableFuture<QuorumResult> result : results)
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(new QuorumResult(1, 0, true));
+        } finally {
+            writers.shutdownNow();
+            storage.stop();
+        }
+    }
+
+    private List<CompletableFuture<Boolean>> followerAcks(int followers) {
+        List<CompletableFuture<Boolean>> acks = IntStream.range(0, followers)
+                .mapToObj(i -> new CompletableFuture<Boolean>())
+                .toList();
+        when(senderService.sendToAllFollowers(any(ReplicationRequest.class), anyInt(), any())).thenReturn(acks);
+        return acks;
+    }
+
+    private StorageService storageService() {
+        ReplicationLog replicationLog = new ReplicationLog();
+        ReflectionTestUtils.setField(replicationLog, "capacity", 100_000L);
+        return new StorageService(new HeapStorageEngine(), senderService, replicationLog, new WriteAheadLog(),
+                null, new HybridLogicalClock());
+    }
+}
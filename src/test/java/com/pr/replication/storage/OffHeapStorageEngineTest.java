@@ -0,0 +1,41 @@
+package com.pr.replication.storage;
+
+import com.pr.replication.model.Entry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapStorageEngineTest {
+
+    @Test
+    void givenValuesOfEverySize_whenStored_thenReadBackWithTheirVersions() {
+        OffHeapStorageEngine engine = new OffHeapStorageEngine(64);
+        long version = 1764590400123456789L;
+
+        engine.put("small", new Entry("välue", version));
+        engine.put("null", new Entry(null, version));
+        engine.put("large", new Entry("x".repeat(1000), version));
+
+        assertThat(engine.get("small")).isEqualTo(new Entry("välue", version));
+        assertThat(engine.get("null")).isEqualTo(new Entry(null, version));
+        assertThat(engine.get("large")).isEqualTo(new Entry("x".repeat(1000), version));
+        assertThat(engine.get("missing")).isNull();
+    }
+
+    @Test
+    void givenRepeatedOverwrites_whenBlocksAreRecycled_thenLatestValuesSurvive() {
+        OffHeapStorageEngine engine = new OffHeapStorageEngine(1024);
+
+        for (int i = 0; i < 20_000; i++)
+            engine.put("key_" + (i % 10), new Entry("value_" + i + "_".repeat(i % 50), i));
+
+        Map<String, String> values = new HashMap<>();
+        engine.forEach((key, entry) -> values.put(key, entry.value()));
+        assertThat(values).hasSize(10);
+        assertThat(engine.get("key_9").value()).isEqualTo("value_19999" + "_".repeat(19999 % 50));
+        assertThat(engine.get("key_9").version()).isEqualTo(19999);
+    }
+}
@@ -0,0 +1,132 @@
+package com.pr.replication.storage;
+
+import com.pr.replication.model.ReplicationRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void givenAppendedRecords_whenRecovered_thenReplaysThemInOrder() throws Exception {
+        List<WriteAheadLog.Record> written = List.of(
+                new WriteAheadLog.Record(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("a", "1", 10, 1)),
+                new WriteAheadLog.Record(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("b", null, 11, 2)),
+                new WriteAheadLog.Record(WriteAheadLog.RecordType.REPLICATE, new ReplicationRequest("a", "2", 12, 3)));
+        WriteAheadLog wal = open();
+        wal.recover(1, record -> {
+        });
+        written.forEach(r -> wal.append(r.type(), r.entry()).join());
+        wal.roll();
+        wal.append(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("c", "1", 13, 4)).join();
+        wal.close();
+
+        assertThat(replay()).containsExactly(
+                written.get(0), written.get(1), written.get(2),
+                new WriteAheadLog.Record(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("c", "1", 13, 4)));
+    }
+
+    @Test
+    void givenTornTail_whenRecovered_thenTruncatesItAndKeepsEarlierRecords() throws Exception {
+        WriteAheadLog wal = open();
+        wal.recover(1, record -> {
+        });
+        wal.append(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("a", "1", 10, 1)).join();
+        wal.close();
+        Path segment = onlySegment();
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        assertThat(replay()).extracting(r -> r.entry().key()).containsExactly("a");
+        assertThat(Files.size(segment)).isEqualTo(intact);
+    }
+
+    @Test
+    void givenHugeLengthInTornHeader_whenRecovered_thenTruncatesWithoutAllocatingIt() throws Exception {
+        WriteAheadLog wal = open();
+        wal.recover(1, record -> {
+        });
+        wal.append(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("a", "1", 10, 1)).join();
+        wal.close();
+        Path segment = onlySegment();
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[]{0x7f, (byte) 0xf0, 0, 0, 0, 0, 0, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertThat(replay()).extracting(r -> r.entry().key()).containsExactly("a");
+        assertThat(Files.size(segment)).isEqualTo(intact);
+    }
+
+    @Test
+    void givenCorruptRecordInEarlierSegment_whenRecovered_thenStopsThereAndSetsLaterSegmentsAside() throws Exception {
+        WriteAheadLog wal = open();
+        wal.recover(1, record -> {
+        });
+        wal.append(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("a", "1", 10, 1)).join();
+        wal.append(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("b", "1", 11, 2)).join();
+        wal.roll();
+        wal.append(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("c", "1", 12, 3)).join();
+        wal.close();
+        List<Path> written = segments();
+        byte[] bytes = Files.readAllBytes(written.getFirst());
+        bytes[bytes.length - 1] ^= 0x7f;
+        Files.write(written.getFirst(), bytes);
+
+        assertThat(replay()).extracting(r -> r.entry().key()).containsExactly("a");
+        assertThat(segments()).containsExactly(written.getFirst(),
+                written.get(1).resolveSibling(written.get(1).getFileName() + ".corrupt"));
+
+        WriteAheadLog reopened = open();
+        reopened.recover(1, record -> {
+        });
+        reopened.append(WriteAheadLog.RecordType.WRITE, new ReplicationRequest("d", "1", 13, 4)).join();
+        reopened.close();
+        assertThat(replay()).extracting(r -> r.entry().key()).containsExactly("a", "d");
+    }
+
+    private WriteAheadLog open() {
+        WriteAheadLog wal = new WriteAheadLog();
+        ReflectionTestUtils.setField(wal, "enabled", true);
+        ReflectionTestUtils.setField(wal, "dir", dir);
+        ReflectionTestUtils.setField(wal, "fsync", WriteAheadLog.FsyncPolicy.ALWAYS);
+        ReflectionTestUtils.setField(wal, "fsyncIntervalMs", 10L);
+        ReflectionTestUtils.setField(wal, "segmentBytes", 1L << 20);
+        ReflectionTestUtils.setField(wal, "maxGroup", 16);
+        return wal;
+    }
+
+    private List<WriteAheadLog.Record> replay() throws Exception {
+        List<WriteAheadLog.Record> records = new ArrayList<>();
+        WriteAheadLog wal = open();
+        try {
+            wal.recover(1, records::add);
+        } finally {
+            wal.close();
+        }
+        return records;
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.getFirst();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+}